@@ -12,6 +12,7 @@ plugins {
     `maven-publish`
     id("io.freefair.lombok") version "8.2.2"
     id("com.github.johnrengelman.shadow") version "8.0.0"
+    id("me.champeau.jmh") version "0.7.1"
 }
 
 group = "dev.frilly"
@@ -32,6 +33,8 @@ dependencies {
     testImplementation("io.kotest:kotest-assertions-core:5.6.2")
     testImplementation("io.kotest:kotest-property:5.6.2")
 
+    annotationProcessor(project(":processor"))
+
     implementation("org.ow2.asm:asm:9.5")
     implementation("org.scala-lang:scala3-library_3:3.3.1-RC6")
     implementation("org.apache.groovy:groovy:4.0.14")
@@ -42,6 +45,13 @@ kotlin {
     jvmToolchain(8)
 }
 
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+}
+
 val javadocJar by tasks.register<Jar>("javadocJar") {
     dependsOn(tasks.javadoc.get())
     from(tasks.javadoc.get().destinationDir)
@@ -51,12 +61,12 @@ val javadocJar by tasks.register<Jar>("javadocJar") {
 
 tasks.shadowJar {
     isZip64 = true
-    configurations = emptyList()
+    configurations = listOf(project.configurations.runtimeClasspath.get())
     dependencies {
-        dependency("org.ow2.asm:asm:9.5")
+        include(dependency("org.ow2.asm:asm:9.5"))
     }
 
-    relocate("org.ow2.asm", "dev.frilly.hikarilib.asm")
+    relocate("org.objectweb.asm", "dev.frilly.hikarilib.asm")
     archiveClassifier.set("shaded")
     minimize()
 }
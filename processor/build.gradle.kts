@@ -0,0 +1,25 @@
+/*
+ * The annotation processor writing the annotation index of jars built against HikariLibrary.
+ */
+plugins {
+    java
+    `maven-publish`
+    id("io.freefair.lombok")
+}
+
+group = "dev.frilly"
+version = rootProject.version
+
+repositories {
+    mavenCentral()
+}
+
+java {
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(8))
+    }
+}
+
+tasks.withType<Jar> {
+    archiveBaseName.set("HikariLibrary-Processor")
+}
@@ -0,0 +1,183 @@
+package dev.frilly.hikarilib.processor;
+
+import lombok.Cleanup;
+import lombok.NonNull;
+import lombok.val;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Writes the annotation index of the compiled classes, read back at runtime by
+ * {@code dev.frilly.hikarilib.index.AnnotationIndex}.
+ * <p>
+ * Every annotation meta-annotated with {@code dev.frilly.hikarilib.index.Indexed} is indexed. The index
+ * lists, under the binary name of each annotation, the annotated types by their binary name and the
+ * annotated members as {@code owner#field} or {@code owner#method(descriptor)}, where the descriptor
+ * is the JVM one. The index is written even if nothing is annotated, so the runtime knows it doesn't
+ * need to scan the jar.
+ */
+public final class IndexProcessor extends AbstractProcessor {
+
+    /**
+     * The location of the index in the jar.
+     */
+    public static final String INDEX = "META-INF/hikarilib/annotations.index";
+
+    private static final String INDEXED = "dev.frilly.hikarilib.index.Indexed";
+
+    private final Map<String, Set<String>> entries = new TreeMap<>();
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        // Indexed annotations are only known by their meta-annotation.
+        return Collections.singleton("*");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment round) {
+        for (val annotation : annotations) {
+            if (!isIndexed(annotation))
+                continue;
+
+            val name = processingEnv.getElementUtils().getBinaryName(annotation).toString();
+            val set = entries.computeIfAbsent(name, key -> new TreeSet<>());
+            for (val element : round.getElementsAnnotatedWith(annotation)) {
+                val entry = entry(element);
+                if (entry != null)
+                    set.add(entry);
+            }
+        }
+
+        if (round.processingOver())
+            write();
+        return false;
+    }
+
+    private boolean isIndexed(final @NonNull TypeElement annotation) {
+        for (val mirror : annotation.getAnnotationMirrors()) {
+            val type = (TypeElement) mirror.getAnnotationType().asElement();
+            if (type.getQualifiedName().contentEquals(INDEXED))
+                return true;
+        }
+        return false;
+    }
+
+    private String entry(final @NonNull Element element) {
+        switch (element.getKind()) {
+            case CLASS:
+            case INTERFACE:
+            case ENUM:
+            case ANNOTATION_TYPE:
+                return binaryName(element);
+            case FIELD:
+            case ENUM_CONSTANT:
+                return binaryName(element.getEnclosingElement()) + "#" + element.getSimpleName();
+            case METHOD:
+            case CONSTRUCTOR:
+                return binaryName(element.getEnclosingElement()) + "#" + element.getSimpleName()
+                        + descriptor((ExecutableElement) element);
+            default:
+                return null;
+        }
+    }
+
+    @NonNull
+    private String binaryName(final @NonNull Element type) {
+        return processingEnv.getElementUtils().getBinaryName((TypeElement) type).toString();
+    }
+
+    @NonNull
+    private String descriptor(final @NonNull ExecutableElement method) {
+        val builder = new StringBuilder("(");
+        for (val parameter : method.getParameters())
+            descriptor(builder, parameter.asType());
+        builder.append(')');
+        descriptor(builder, method.getReturnType());
+        return builder.toString();
+    }
+
+    private void descriptor(final @NonNull StringBuilder builder, final @NonNull TypeMirror mirror) {
+        val type = processingEnv.getTypeUtils().erasure(mirror);
+        switch (type.getKind()) {
+            case BOOLEAN:
+                builder.append('Z');
+                break;
+            case BYTE:
+                builder.append('B');
+                break;
+            case SHORT:
+                builder.append('S');
+                break;
+            case INT:
+                builder.append('I');
+                break;
+            case LONG:
+                builder.append('J');
+                break;
+            case CHAR:
+                builder.append('C');
+                break;
+            case FLOAT:
+                builder.append('F');
+                break;
+            case DOUBLE:
+                builder.append('D');
+                break;
+            case VOID:
+                builder.append('V');
+                break;
+            case ARRAY:
+                builder.append('[');
+                descriptor(builder, ((ArrayType) type).getComponentType());
+                break;
+            default:
+                val element = ((DeclaredType) type).asElement();
+                builder.append('L').append(binaryName(element).replace('.', '/')).append(';');
+                break;
+        }
+    }
+
+    private void write() {
+        try {
+            val file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX);
+            @Cleanup Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8);
+            for (val annotation : entries.entrySet()) {
+                writer.write(annotation.getKey());
+                writer.write('\n');
+                for (val entry : annotation.getValue()) {
+                    writer.write(' ');
+                    writer.write(entry);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException exception) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Could not write the annotation index: " + exception.getMessage());
+        }
+    }
+
+}
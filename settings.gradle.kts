@@ -6,3 +6,4 @@
  */
 
 rootProject.name = "hikari-library"
+include("processor")
@@ -0,0 +1,88 @@
+package dev.frilly.hikarilib.misc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link Strings} trimming and prefix utilities to the regular expressions they used to
+ * run, on lines shaped like the ones of a .properties file.
+ * <p>
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StringsBenchmark {
+
+    @Param({"key=value", "    key = value with some text    ", "\t\tindented.key=value\t"})
+    public String line;
+
+    private StringBuilder builder;
+
+    @Setup
+    public void setup() {
+        builder = new StringBuilder(64);
+    }
+
+    @Benchmark
+    public String trimLeftRegex() {
+        return line.replaceAll("^\\s+", "");
+    }
+
+    @Benchmark
+    public String trimLeft() {
+        return Strings.trimLeft(line);
+    }
+
+    @Benchmark
+    public String trimRightRegex() {
+        return line.replaceAll("\\s+$", "");
+    }
+
+    @Benchmark
+    public String trimRight() {
+        return Strings.trimRight(line);
+    }
+
+    @Benchmark
+    public String trimBothRegex() {
+        return line.replaceAll("^\\s+", "").replaceAll("\\s+$", "");
+    }
+
+    @Benchmark
+    public String trimBoth() {
+        return Strings.trimRight(Strings.trimLeft(line));
+    }
+
+    @Benchmark
+    public void trimBothView(final Blackhole blackhole) {
+        builder.setLength(0);
+        blackhole.consume(builder.append(Strings.trimRight(Strings.trimLeft((CharSequence) line))));
+    }
+
+    @Benchmark
+    public void trimBothCopy(final Blackhole blackhole) {
+        builder.setLength(0);
+        blackhole.consume(builder.append(Strings.trimRight(Strings.trimLeft(line))));
+    }
+
+    @Benchmark
+    public String removePrefix() {
+        return Strings.removePrefix(line, "    ");
+    }
+
+    @Benchmark
+    public boolean removePrefixView() {
+        return Strings.contentEquals(Strings.removePrefix((CharSequence) line, "    "), "key = value with some text    ");
+    }
+
+}
@@ -0,0 +1,138 @@
+package dev.frilly.hikarilib.config;
+
+import dev.frilly.hikarilib.properties.PropertiesFile;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import lombok.val;
+import lombok.var;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.invoke.MethodHandles;
+import java.security.ProtectionDomain;
+import java.util.List;
+
+/**
+ * Generates {@link ConfigAccessor} classes with ASM.
+ * <p>
+ * An accessor is defined in the same package and class loader as the class it binds, so it can
+ * assign every non-private field directly. For every field, it does what hand-written code would:
+ * <pre>{@code
+ * if (file.contains("key"))
+ *     target.field = file.getInt("key");
+ * }</pre>
+ */
+@UtilityClass
+final class AccessorGenerator {
+
+    private final String SUFFIX = "$$HikariConfigAccessor";
+    private final String FILE = Type.getInternalName(PropertiesFile.class);
+    private final Object LOCK = new Object();
+
+    /**
+     * Generates and loads the accessor of a class, or reuses it if it was already loaded.
+     *
+     * @param host   the class to bind
+     * @param fields the fields to bind, none of them private
+     * @return the accessor, or null if it could not be defined, in which case reflection must be used
+     */
+    @Nullable
+    ConfigAccessor generate(final @NonNull Class<?> host, final @NonNull List<Binding.BoundField> fields) {
+        if (host.getClassLoader() == null)
+            return null;
+
+        val name = host.getName() + SUFFIX;
+        synchronized (LOCK) {
+            try {
+                var accessor = find(host, name);
+                if (accessor == null)
+                    accessor = define(host, name, bytecode(name, host, fields));
+                return (ConfigAccessor) accessor.getConstructor().newInstance();
+            } catch (Exception | LinkageError exception) {
+                return null;
+            }
+        }
+    }
+
+    @Nullable
+    private Class<?> find(final @NonNull Class<?> host, final @NonNull String name) {
+        try {
+            return Class.forName(name, false, host.getClassLoader());
+        } catch (ClassNotFoundException exception) {
+            return null;
+        }
+    }
+
+    @NonNull
+    private Class<?> define(final @NonNull Class<?> host, final @NonNull String name, final @NonNull byte[] bytes)
+            throws Exception {
+        try {
+            // Java 9 and later, without having to open up ClassLoader.
+            val privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+            val defineClass = MethodHandles.Lookup.class.getMethod("defineClass", byte[].class);
+            val lookup = privateLookupIn.invoke(null, host, MethodHandles.lookup());
+            return (Class<?>) defineClass.invoke(lookup, (Object) bytes);
+        } catch (NoSuchMethodException exception) {
+            // Java 8.
+            val defineClass = ClassLoader.class.getDeclaredMethod("defineClass", String.class, byte[].class,
+                    int.class, int.class, ProtectionDomain.class);
+            defineClass.setAccessible(true);
+            return (Class<?>) defineClass.invoke(host.getClassLoader(), name, bytes, 0, bytes.length,
+                    host.getProtectionDomain());
+        }
+    }
+
+    @NonNull
+    private byte[] bytecode(final @NonNull String name, final @NonNull Class<?> host,
+                            final @NonNull List<Binding.BoundField> fields) {
+        val internalName = name.replace('.', '/');
+        val hostName = Type.getInternalName(host);
+
+        val writer = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER | Opcodes.ACC_SYNTHETIC,
+                internalName, null, "java/lang/Object", new String[]{Type.getInternalName(ConfigAccessor.class)});
+
+        val constructor = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+
+        // bind(Object target, PropertiesFile file), with the cast target in local 3.
+        val bind = writer.visitMethod(Opcodes.ACC_PUBLIC, "bind",
+                "(Ljava/lang/Object;L" + FILE + ";)V", null, null);
+        bind.visitCode();
+        bind.visitVarInsn(Opcodes.ALOAD, 1);
+        bind.visitTypeInsn(Opcodes.CHECKCAST, hostName);
+        bind.visitVarInsn(Opcodes.ASTORE, 3);
+
+        for (val field : fields) {
+            val skip = new Label();
+            bind.visitVarInsn(Opcodes.ALOAD, 2);
+            bind.visitLdcInsn(field.getKey());
+            bind.visitMethodInsn(Opcodes.INVOKEVIRTUAL, FILE, "contains", "(Ljava/lang/String;)Z", false);
+            bind.visitJumpInsn(Opcodes.IFEQ, skip);
+
+            bind.visitVarInsn(Opcodes.ALOAD, 3);
+            bind.visitVarInsn(Opcodes.ALOAD, 2);
+            bind.visitLdcInsn(field.getKey());
+            field.getType().emit(bind, field.getField().getType());
+            bind.visitFieldInsn(Opcodes.PUTFIELD, hostName, field.getField().getName(),
+                    Type.getDescriptor(field.getField().getType()));
+            bind.visitLabel(skip);
+        }
+
+        bind.visitInsn(Opcodes.RETURN);
+        bind.visitMaxs(0, 0);
+        bind.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+}
@@ -0,0 +1,153 @@
+package dev.frilly.hikarilib.config;
+
+import dev.frilly.hikarilib.properties.PropertiesFile;
+import dev.frilly.hikarilib.reflection.Invokers;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The binding of a single class: the generated accessor for the fields it can reach, method handles
+ * for the rest, and the binding of the super class.
+ */
+final class Binding {
+
+    private static final Binding EMPTY = new Binding(null, null, Collections.emptyList());
+
+    private final Binding parent;
+    private final ConfigAccessor accessor;
+    private final List<BoundField> reflective;
+
+    private Binding(final @Nullable Binding parent, final @Nullable ConfigAccessor accessor,
+                    final @NonNull List<BoundField> reflective) {
+        this.parent = parent;
+        this.accessor = accessor;
+        this.reflective = reflective;
+    }
+
+    /**
+     * Creates the binding of a class, generating its accessor if needed.
+     *
+     * @param type the class
+     * @return the binding
+     */
+    @NonNull
+    static Binding of(final @NonNull Class<?> type) {
+        val superclass = type.getSuperclass();
+        val inherited = superclass == null || superclass == Object.class ? EMPTY : ConfigBinder.binding(superclass);
+        val parent = inherited == EMPTY ? null : inherited;
+
+        val section = type.isAnnotationPresent(ConfigKey.class) ? type.getAnnotation(ConfigKey.class).value() : "";
+        val generated = new ArrayList<BoundField>();
+        val reflective = new ArrayList<BoundField>();
+        for (val field : type.getDeclaredFields()) {
+            val annotation = field.getAnnotation(ConfigKey.class);
+            if (annotation == null)
+                continue;
+
+            val name = annotation.value().isEmpty() ? field.getName() : annotation.value();
+            val bound = new BoundField(field, section.isEmpty() ? name : section + "." + name);
+            if (Modifier.isPrivate(field.getModifiers()) || !isVisible(field.getType(), type))
+                reflective.add(bound);
+            else
+                generated.add(bound);
+        }
+
+        if (parent == null && generated.isEmpty() && reflective.isEmpty())
+            return EMPTY;
+
+        val accessor = generated.isEmpty() ? null : AccessorGenerator.generate(type, generated);
+        // If the class can't be generated, everything goes through method handles.
+        if (accessor == null)
+            reflective.addAll(generated);
+        return new Binding(parent, accessor, reflective);
+    }
+
+    /**
+     * Checks whether the generated accessor, living in the package of the host, can see a type.
+     */
+    private static boolean isVisible(final @NonNull Class<?> type, final @NonNull Class<?> host) {
+        if (type.isPrimitive())
+            return true;
+        if (type.getClassLoader() == host.getClassLoader() && type.getPackage() == host.getPackage())
+            return true;
+        for (Class<?> current = type; current != null; current = current.getEnclosingClass()) {
+            if (!Modifier.isPublic(current.getModifiers()))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Binds the target, super class fields first.
+     *
+     * @param target the object
+     * @param file   the file
+     */
+    void bind(final @NonNull Object target, final @NonNull PropertiesFile file) {
+        if (parent != null)
+            parent.bind(target, file);
+        if (accessor != null)
+            accessor.bind(target, file);
+        for (val field : reflective)
+            field.bind(target, file);
+    }
+
+    /**
+     * A field along with its key.
+     */
+    static final class BoundField {
+
+        private final Field field;
+        private final String key;
+        private final FieldType type;
+        private MethodHandle setter;
+
+        private BoundField(final @NonNull Field field, final @NonNull String key) {
+            val modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers))
+                throw new IllegalArgumentException("Can't bind static or final field " + field);
+            val type = FieldType.of(field.getType());
+            if (type == null)
+                throw new IllegalArgumentException("Can't bind field " + field + " of type " + field.getType().getName());
+
+            this.field = field;
+            this.key = key;
+            this.type = type;
+        }
+
+        @NonNull
+        Field getField() {
+            return field;
+        }
+
+        @NonNull
+        String getKey() {
+            return key;
+        }
+
+        @NonNull
+        FieldType getType() {
+            return type;
+        }
+
+        @SneakyThrows
+        private void bind(final @NonNull Object target, final @NonNull PropertiesFile file) {
+            if (!file.contains(key))
+                return;
+            if (setter == null)
+                setter = Invokers.setter(field);
+            setter.invokeExact(target, type.read(file, key, field.getType()));
+        }
+
+    }
+
+}
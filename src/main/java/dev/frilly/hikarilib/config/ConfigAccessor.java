@@ -0,0 +1,23 @@
+package dev.frilly.hikarilib.config;
+
+import dev.frilly.hikarilib.properties.PropertiesFile;
+import lombok.NonNull;
+
+/**
+ * Copies the values of a {@link PropertiesFile} into the bound fields of an object.
+ * <p>
+ * This is implemented by the classes {@link ConfigBinder} generates at runtime, it only has to be
+ * public so they can see it from the package of the bound class.
+ */
+public interface ConfigAccessor {
+
+    /**
+     * Copies every bound key that exists in the file into its field. Fields of missing keys are
+     * left untouched.
+     *
+     * @param target the object to bind
+     * @param file   the file to read from
+     */
+    void bind(@NonNull Object target, @NonNull PropertiesFile file);
+
+}
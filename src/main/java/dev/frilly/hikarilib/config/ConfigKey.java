@@ -0,0 +1,29 @@
+package dev.frilly.hikarilib.config;
+
+import dev.frilly.hikarilib.index.Indexed;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a field to a key of a {@link dev.frilly.hikarilib.properties.PropertiesFile}, see
+ * {@link ConfigBinder}.
+ * <p>
+ * On a class, this sets the section every key of the class lives under, so a field bound to
+ * {@code max} in a class bound to {@code settings} reads {@code settings.max}.
+ */
+@Indexed
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.TYPE})
+public @interface ConfigKey {
+
+    /**
+     * Gets the key, or the section for classes. If empty, fields use their own name.
+     *
+     * @return the key
+     */
+    String value() default "";
+
+}
@@ -0,0 +1,198 @@
+package dev.frilly.hikarilib.config;
+
+import dev.frilly.hikarilib.properties.PropertiesFile;
+import dev.frilly.hikarilib.properties.PropertyKey;
+import lombok.NonNull;
+import lombok.val;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The field types that can be bound, along with how to read each of them from a file, both
+ * reflectively and as bytecode.
+ */
+enum FieldType {
+
+    STRING(String.class) {
+        @Override
+        Object read(final @NonNull PropertiesFile file, final @NonNull String key, final @NonNull Class<?> type) {
+            return file.getRaw(key).getValue();
+        }
+
+        @Override
+        void emit(final @NonNull MethodVisitor method, final @NonNull Class<?> type) {
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, FILE, "getRaw", "(Ljava/lang/String;)" + KEY, false);
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Type.getInternalName(PropertyKey.class), "getValue",
+                    "()Ljava/lang/String;", false);
+        }
+    },
+    INT(int.class, Integer.class) {
+        @Override
+        Object read(final @NonNull PropertiesFile file, final @NonNull String key, final @NonNull Class<?> type) {
+            return file.getInt(key);
+        }
+
+        @Override
+        void emit(final @NonNull MethodVisitor method, final @NonNull Class<?> type) {
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, FILE, "getInt", "(Ljava/lang/String;)I", false);
+            if (type == Integer.class)
+                box(method, Integer.class, "I");
+        }
+    },
+    LONG(long.class, Long.class) {
+        @Override
+        Object read(final @NonNull PropertiesFile file, final @NonNull String key, final @NonNull Class<?> type) {
+            return file.getLong(key);
+        }
+
+        @Override
+        void emit(final @NonNull MethodVisitor method, final @NonNull Class<?> type) {
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, FILE, "getLong", "(Ljava/lang/String;)J", false);
+            if (type == Long.class)
+                box(method, Long.class, "J");
+        }
+    },
+    DOUBLE(double.class, Double.class) {
+        @Override
+        Object read(final @NonNull PropertiesFile file, final @NonNull String key, final @NonNull Class<?> type) {
+            return file.getDouble(key);
+        }
+
+        @Override
+        void emit(final @NonNull MethodVisitor method, final @NonNull Class<?> type) {
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, FILE, "getDouble", "(Ljava/lang/String;)D", false);
+            if (type == Double.class)
+                box(method, Double.class, "D");
+        }
+    },
+    FLOAT(float.class, Float.class) {
+        @Override
+        Object read(final @NonNull PropertiesFile file, final @NonNull String key, final @NonNull Class<?> type) {
+            return (float) file.getDouble(key);
+        }
+
+        @Override
+        void emit(final @NonNull MethodVisitor method, final @NonNull Class<?> type) {
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, FILE, "getDouble", "(Ljava/lang/String;)D", false);
+            method.visitInsn(Opcodes.D2F);
+            if (type == Float.class)
+                box(method, Float.class, "F");
+        }
+    },
+    BOOLEAN(boolean.class, Boolean.class) {
+        @Override
+        Object read(final @NonNull PropertiesFile file, final @NonNull String key, final @NonNull Class<?> type) {
+            return file.getBoolean(key);
+        }
+
+        @Override
+        void emit(final @NonNull MethodVisitor method, final @NonNull Class<?> type) {
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, FILE, "getBoolean", "(Ljava/lang/String;)Z", false);
+            if (type == Boolean.class)
+                box(method, Boolean.class, "Z");
+        }
+    },
+    LIST(List.class) {
+        @Override
+        Object read(final @NonNull PropertiesFile file, final @NonNull String key, final @NonNull Class<?> type) {
+            return file.getList(key);
+        }
+
+        @Override
+        void emit(final @NonNull MethodVisitor method, final @NonNull Class<?> type) {
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, FILE, "getList", "(Ljava/lang/String;)Ljava/util/List;", false);
+        }
+    },
+    DURATION(Duration.class) {
+        @Override
+        Object read(final @NonNull PropertiesFile file, final @NonNull String key, final @NonNull Class<?> type) {
+            return file.getDuration(key);
+        }
+
+        @Override
+        void emit(final @NonNull MethodVisitor method, final @NonNull Class<?> type) {
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, FILE, "getDuration", "(Ljava/lang/String;)Ljava/time/Duration;",
+                    false);
+        }
+    },
+    ENUM() {
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Object read(final @NonNull PropertiesFile file, final @NonNull String key, final @NonNull Class<?> type) {
+            return Enum.valueOf((Class) type, file.getRaw(key).getValue().trim());
+        }
+
+        @Override
+        void emit(final @NonNull MethodVisitor method, final @NonNull Class<?> type) {
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, FILE, "getRaw", "(Ljava/lang/String;)" + KEY, false);
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Type.getInternalName(PropertyKey.class), "getValue",
+                    "()Ljava/lang/String;", false);
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "trim", "()Ljava/lang/String;", false);
+            // Enum.valueOf takes the class first.
+            method.visitLdcInsn(Type.getType(type));
+            method.visitInsn(Opcodes.SWAP);
+            method.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Enum", "valueOf",
+                    "(Ljava/lang/Class;Ljava/lang/String;)Ljava/lang/Enum;", false);
+            method.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(type));
+        }
+    };
+
+    private static final String FILE = Type.getInternalName(PropertiesFile.class);
+    private static final String KEY = Type.getDescriptor(PropertyKey.class);
+
+    private final Class<?>[] types;
+
+    FieldType(final @NonNull Class<?>... types) {
+        this.types = types;
+    }
+
+    /**
+     * Gets the field type of a class.
+     *
+     * @param type the class of the field
+     * @return the field type, or null if it can't be bound
+     */
+    @Nullable
+    static FieldType of(final @NonNull Class<?> type) {
+        if (type.isEnum())
+            return ENUM;
+        for (val fieldType : values()) {
+            for (val supported : fieldType.types) {
+                if (supported == type)
+                    return fieldType;
+            }
+        }
+        return null;
+    }
+
+    private static void box(final @NonNull MethodVisitor method, final @NonNull Class<?> boxed,
+                            final @NonNull String primitive) {
+        val owner = Type.getInternalName(boxed);
+        method.visitMethodInsn(Opcodes.INVOKESTATIC, owner, "valueOf", "(" + primitive + ")L" + owner + ";", false);
+    }
+
+    /**
+     * Reads the value of a key reflectively.
+     *
+     * @param file the file
+     * @param key  the key, which must exist
+     * @param type the class of the field
+     * @return the value
+     */
+    abstract Object read(@NonNull PropertiesFile file, @NonNull String key, @NonNull Class<?> type);
+
+    /**
+     * Emits the bytecode reading the value of a key. The file and the key must be on the stack, and
+     * they are replaced by the value.
+     *
+     * @param method the method to emit to
+     * @param type   the class of the field
+     */
+    abstract void emit(@NonNull MethodVisitor method, @NonNull Class<?> type);
+
+}
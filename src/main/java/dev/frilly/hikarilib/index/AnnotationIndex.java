@@ -0,0 +1,206 @@
+package dev.frilly.hikarilib.index;
+
+import lombok.Cleanup;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.val;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarFile;
+
+/**
+ * The annotated types and members of a single jar or class directory.
+ * <p>
+ * Jars compiled with the {@code HikariLibrary-Processor} annotation processor carry an index of
+ * every usage of the {@link Indexed} annotations, which is all that's read when loading them, so
+ * loading costs the same no matter how many classes the jar or the rest of the classpath holds.
+ * Jars without an index are scanned with ASM instead, which reads every class file of the jar but
+ * never loads any of them.
+ * <p>
+ * Types are listed by their binary name, such as {@code com.example.Outer$Inner}, and members as
+ * {@code owner#field} or {@code owner#method(descriptor)}, where the descriptor is the JVM one.
+ */
+public final class AnnotationIndex {
+
+    /**
+     * The location of the index in the jar.
+     */
+    public static final String INDEX = "META-INF/hikarilib/annotations.index";
+
+    private final Map<String, Set<String>> entries;
+    private final boolean indexed;
+
+    private AnnotationIndex(final @NonNull Map<String, Set<String>> entries, final boolean indexed) {
+        this.entries = entries;
+        this.indexed = indexed;
+    }
+
+    /**
+     * Loads the index of the jar or class directory a class was loaded from, such as the jar of
+     * a plugin.
+     *
+     * @param type the class
+     * @return the index
+     */
+    @NonNull
+    @SneakyThrows
+    public static AnnotationIndex of(final @NonNull Class<?> type) {
+        val source = type.getProtectionDomain().getCodeSource();
+        if (source == null || source.getLocation() == null)
+            throw new IllegalArgumentException("Can't locate the jar of " + type.getName());
+        return of(new File(source.getLocation().toURI()));
+    }
+
+    /**
+     * Loads the index of a jar or class directory, scanning it if it has no index.
+     *
+     * @param file the jar or directory
+     * @return the index
+     */
+    @NonNull
+    @SneakyThrows
+    public static AnnotationIndex of(final @NonNull File file) {
+        if (file.isDirectory()) {
+            val index = new File(file, INDEX);
+            if (!index.isFile())
+                return new AnnotationIndex(IndexScanner.scan(file), false);
+            @Cleanup val stream = new FileInputStream(index);
+            return new AnnotationIndex(read(stream), true);
+        }
+
+        @Cleanup val jar = new JarFile(file);
+        val index = jar.getEntry(INDEX);
+        if (index == null)
+            return new AnnotationIndex(IndexScanner.scan(jar), false);
+        @Cleanup val stream = jar.getInputStream(index);
+        return new AnnotationIndex(read(stream), true);
+    }
+
+    /**
+     * Reads an index: the binary name of every annotation on its own line, each followed by its
+     * entries, one per line, indented by a space.
+     */
+    @NonNull
+    @SneakyThrows
+    private static Map<String, Set<String>> read(final @NonNull InputStream stream) {
+        val entries = new HashMap<String, Set<String>>();
+        val reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        Set<String> current = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty() || line.startsWith("#"))
+                continue;
+            if (line.charAt(0) != ' ')
+                current = entries.computeIfAbsent(line.trim(), key -> new LinkedHashSet<>());
+            else if (current != null)
+                current.add(line.trim());
+        }
+        return entries;
+    }
+
+    /**
+     * Checks whether this was read from an index, rather than scanned.
+     *
+     * @return whether the jar had an index
+     */
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    /**
+     * Gets every usage of an annotation, types and members alike.
+     *
+     * @param annotation the annotation
+     * @return the entries
+     */
+    @NonNull
+    public Set<String> getEntries(final @NonNull Class<? extends Annotation> annotation) {
+        val set = entries.get(annotation.getName());
+        return set == null ? Collections.emptySet() : Collections.unmodifiableSet(set);
+    }
+
+    /**
+     * Gets the types annotated with an annotation.
+     *
+     * @param annotation the annotation
+     * @return the binary names of the types
+     */
+    @NonNull
+    public Set<String> getTypes(final @NonNull Class<? extends Annotation> annotation) {
+        val types = new LinkedHashSet<String>();
+        for (val entry : getEntries(annotation)) {
+            if (entry.indexOf('#') == -1)
+                types.add(entry);
+        }
+        return types;
+    }
+
+    /**
+     * Gets the members annotated with an annotation.
+     *
+     * @param annotation the annotation
+     * @return the members, as {@code owner#member}
+     */
+    @NonNull
+    public Set<String> getMembers(final @NonNull Class<? extends Annotation> annotation) {
+        val members = new LinkedHashSet<String>();
+        for (val entry : getEntries(annotation)) {
+            if (entry.indexOf('#') != -1)
+                members.add(entry);
+        }
+        return members;
+    }
+
+    /**
+     * Gets the types either annotated with an annotation or declaring an annotated member.
+     *
+     * @param annotation the annotation
+     * @return the binary names of the types
+     */
+    @NonNull
+    public Set<String> getOwners(final @NonNull Class<? extends Annotation> annotation) {
+        val owners = new LinkedHashSet<String>();
+        for (val entry : getEntries(annotation)) {
+            val hash = entry.indexOf('#');
+            owners.add(hash == -1 ? entry : entry.substring(0, hash));
+        }
+        return owners;
+    }
+
+    /**
+     * Loads, without initializing them, the types either annotated with an annotation or declaring
+     * an annotated member.
+     *
+     * @param annotation the annotation
+     * @param loader     the class loader of the jar
+     * @return the classes
+     */
+    @NonNull
+    @SneakyThrows
+    public List<Class<?>> getClasses(final @NonNull Class<? extends Annotation> annotation,
+                                     final @NonNull ClassLoader loader) {
+        val classes = new ArrayList<Class<?>>();
+        for (val owner : getOwners(annotation))
+            classes.add(Class.forName(owner, false, loader));
+        return classes;
+    }
+
+    @Override
+    public String toString() {
+        return "AnnotationIndex{annotations=" + entries.keySet() + ", indexed=" + indexed + "}";
+    }
+
+}
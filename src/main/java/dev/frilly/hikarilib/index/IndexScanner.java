@@ -0,0 +1,137 @@
+package dev.frilly.hikarilib.index;
+
+import lombok.Cleanup;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.experimental.UtilityClass;
+import lombok.val;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the entries of an {@link AnnotationIndex} by reading class files with ASM, for jars compiled
+ * without the annotation processor.
+ * <p>
+ * Since it can't tell which annotations are {@link Indexed} without loading them, every annotation
+ * found is recorded.
+ */
+@UtilityClass
+final class IndexScanner {
+
+    private final int API = Opcodes.ASM9;
+
+    /**
+     * Scans every class file of a jar.
+     *
+     * @param jar the jar
+     * @return the entries, by annotation
+     */
+    @NonNull
+    @SneakyThrows
+    Map<String, Set<String>> scan(final @NonNull JarFile jar) {
+        val entries = new HashMap<String, Set<String>>();
+        val iterator = jar.entries();
+        while (iterator.hasMoreElements()) {
+            val entry = iterator.nextElement();
+            if (entry.isDirectory() || !isClass(entry.getName()))
+                continue;
+            @Cleanup val stream = jar.getInputStream(entry);
+            scan(stream, entries);
+        }
+        return entries;
+    }
+
+    /**
+     * Scans every class file under a directory.
+     *
+     * @param directory the directory
+     * @return the entries, by annotation
+     */
+    @NonNull
+    @SneakyThrows
+    Map<String, Set<String>> scan(final @NonNull File directory) {
+        val entries = new HashMap<String, Set<String>>();
+        @Cleanup val walk = Files.walk(directory.toPath());
+        for (val path : walk.filter(Files::isRegularFile).collect(Collectors.toList())) {
+            if (!isClass(path.getFileName().toString()))
+                continue;
+            @Cleanup val stream = new FileInputStream(path.toFile());
+            scan(stream, entries);
+        }
+        return entries;
+    }
+
+    private boolean isClass(final @NonNull String name) {
+        return name.endsWith(".class") && !name.endsWith("module-info.class")
+                && !name.endsWith("package-info.class");
+    }
+
+    @SneakyThrows
+    private void scan(final @NonNull InputStream stream, final @NonNull Map<String, Set<String>> entries) {
+        val reader = new ClassReader(stream);
+        reader.accept(new ClassVisitor(API) {
+            private String owner;
+
+            @Override
+            public void visit(final int version, final int access, final String name, final String signature,
+                              final String superName, final String[] interfaces) {
+                owner = Type.getObjectType(name).getClassName();
+            }
+
+            @Override
+            public AnnotationVisitor visitAnnotation(final String descriptor, final boolean visible) {
+                record(entries, descriptor, owner);
+                return null;
+            }
+
+            @Override
+            public FieldVisitor visitField(final int access, final String name, final String descriptor,
+                                           final String signature, final Object value) {
+                val member = owner + "#" + name;
+                return new FieldVisitor(API) {
+                    @Override
+                    public AnnotationVisitor visitAnnotation(final String annotation, final boolean visible) {
+                        record(entries, annotation, member);
+                        return null;
+                    }
+                };
+            }
+
+            @Override
+            public MethodVisitor visitMethod(final int access, final String name, final String descriptor,
+                                             final String signature, final String[] exceptions) {
+                val member = owner + "#" + name + descriptor;
+                return new MethodVisitor(API) {
+                    @Override
+                    public AnnotationVisitor visitAnnotation(final String annotation, final boolean visible) {
+                        record(entries, annotation, member);
+                        return null;
+                    }
+                };
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    }
+
+    private void record(final @NonNull Map<String, Set<String>> entries, final @NonNull String descriptor,
+                        final @NonNull String entry) {
+        val annotation = Type.getType(descriptor).getClassName();
+        entries.computeIfAbsent(annotation, key -> new LinkedHashSet<>()).add(entry);
+    }
+
+}
@@ -0,0 +1,22 @@
+package dev.frilly.hikarilib.index;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an annotation whose usages are recorded in the annotation index of a jar at compile time,
+ * see {@link AnnotationIndex}.
+ * <p>
+ * Types, fields, methods and constructors carrying the annotation are recorded by the
+ * {@code HikariLibrary-Processor} annotation processor, so they can be found at runtime without
+ * scanning the classes of the jar.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.ANNOTATION_TYPE)
+public @interface Indexed {
+
+}
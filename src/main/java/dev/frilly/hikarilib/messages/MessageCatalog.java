@@ -0,0 +1,297 @@
+package dev.frilly.hikarilib.messages;
+
+import dev.frilly.hikarilib.misc.Strings;
+import dev.frilly.hikarilib.misc.Tasks;
+import dev.frilly.hikarilib.misc.Template;
+import dev.frilly.hikarilib.properties.PropertiesFile;
+import lombok.NonNull;
+import lombok.val;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The messages of a plugin, in every locale, loaded from a directory of .properties files named
+ * after their locale, such as {@code en_us.properties}.
+ * <p>
+ * Every message is colorized and compiled into a {@link Template} once, when loaded, so formatting a
+ * message is a single lookup and a single rendering pass. Messages missing from a locale fall back
+ * to its language, then to the default locale, so {@code pt_br} falls back to {@code pt}, then to
+ * {@code en_us} for example. Lookups of unknown keys return the key itself.
+ * <p>
+ * Reloading builds every table first, then swaps them all at once, so concurrent lookups see either
+ * the old messages or the new ones, never a mix of both.
+ */
+public final class MessageCatalog {
+
+    private final Path directory;
+    private final String defaultLocale;
+    private volatile Tables tables;
+
+    private MessageCatalog(final @NonNull Path directory, final @NonNull String defaultLocale) {
+        this.directory = directory;
+        this.defaultLocale = normalize(defaultLocale);
+        this.tables = new Tables(Collections.emptyMap(), Collections.emptyMap(), this.defaultLocale);
+    }
+
+    /**
+     * Loads every locale of a directory.
+     *
+     * @param directory     the directory
+     * @param defaultLocale the locale every other locale falls back to
+     * @return the catalog
+     */
+    @NonNull
+    public static MessageCatalog load(final @NonNull Path directory, final @NonNull String defaultLocale) {
+        val catalog = new MessageCatalog(directory, defaultLocale);
+        catalog.reload();
+        return catalog;
+    }
+
+    /**
+     * Normalizes a locale, so that {@code en-US} and {@code en_us} are the same.
+     */
+    @NonNull
+    private static String normalize(final @NonNull String locale) {
+        return locale.trim().replace('-', '_').toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Gets the language of a locale, such as {@code pt} for {@code pt_br}.
+     */
+    @NonNull
+    private static String language(final @NonNull String locale) {
+        val underscore = locale.indexOf('_');
+        return underscore == -1 ? locale : locale.substring(0, underscore);
+    }
+
+    /**
+     * Reloads every locale from the directory, in parallel.
+     * <p>
+     * Locales that fail to load keep their previous messages.
+     *
+     * @return the exceptions of the locales that failed to load, by locale
+     */
+    @NonNull
+    public Map<String, Throwable> reload() {
+        val previous = this.tables;
+        val compiled = new HashMap<String, Map<String, Template>>();
+        val failures = new LinkedHashMap<String, Throwable>();
+        for (val entry : PropertiesFile.loadAll(directory).entrySet()) {
+            val name = entry.getKey().getFileName().toString();
+            val locale = normalize(name.substring(0, name.length() - ".properties".length()));
+            val attempt = entry.getValue();
+            if (attempt.isSuccess()) {
+                compiled.put(locale, compile(attempt.getValue()));
+                continue;
+            }
+
+            failures.put(locale, attempt.getException());
+            val old = previous.own.get(locale);
+            if (old != null)
+                compiled.put(locale, old);
+        }
+
+        this.tables = new Tables(compiled, flatten(compiled), defaultLocale);
+        return failures;
+    }
+
+    /**
+     * Reloads every locale from the directory, in the background on {@link Tasks#async()}.
+     *
+     * @return the future completing with the exceptions of the locales that failed to load
+     */
+    @NonNull
+    public CompletableFuture<Map<String, Throwable>> reloadAsync() {
+        return Tasks.supplyAsync(this::reload);
+    }
+
+    @NonNull
+    private Map<String, Template> compile(final @NonNull PropertiesFile file) {
+        val messages = new HashMap<String, Template>();
+        for (val entry : file.range("", null).entrySet())
+            messages.put(entry.getKey(), Template.of(Strings.color(entry.getValue().getValue())));
+        return messages;
+    }
+
+    /**
+     * Merges every locale with the locales it falls back to, so that lookups only need one table.
+     */
+    @NonNull
+    private Map<String, Map<String, Template>> flatten(final @NonNull Map<String, Map<String, Template>> own) {
+        val base = own.getOrDefault(defaultLocale, Collections.emptyMap());
+        val flattened = new HashMap<String, Map<String, Template>>();
+        for (val entry : own.entrySet()) {
+            val locale = entry.getKey();
+            val table = new HashMap<String, Template>(base);
+            val language = own.get(language(locale));
+            if (language != null)
+                table.putAll(language);
+            table.putAll(entry.getValue());
+            flattened.put(locale, table);
+        }
+        flattened.put(defaultLocale, new HashMap<>(base));
+        return flattened;
+    }
+
+    /**
+     * Gets the locales that were loaded.
+     *
+     * @return the locales
+     */
+    @NonNull
+    public Set<String> getLocales() {
+        return Collections.unmodifiableSet(tables.own.keySet());
+    }
+
+    /**
+     * Gets the locale every other locale falls back to.
+     *
+     * @return the default locale
+     */
+    @NonNull
+    public String getDefaultLocale() {
+        return defaultLocale;
+    }
+
+    /**
+     * Gets the template of a message.
+     *
+     * @param locale the locale, or null for the default locale
+     * @param key    the key of the message
+     * @return the template, or null if no locale it falls back to has the message
+     */
+    @Nullable
+    public Template get(final @Nullable String locale, final @NonNull String key) {
+        return tables.table(locale).get(key);
+    }
+
+    /**
+     * Checks whether the default locale has a message.
+     *
+     * @param key the key of the message
+     * @return whether the message exists
+     */
+    public boolean contains(final @NonNull String key) {
+        return get(null, key) != null;
+    }
+
+    /**
+     * Formats a message, replacing every %name% with its value, just like
+     * {@link Strings#replacePlaceholders(String, Object...)}. Values are not colorized.
+     *
+     * @param locale       the locale, or null for the default locale
+     * @param key          the key of the message
+     * @param replacements the names and values of the placeholders, alternating
+     * @return the message, or the key if no locale has it
+     */
+    @NonNull
+    public String format(final @Nullable String locale, final @NonNull String key, final Object... replacements) {
+        if (replacements != null && replacements.length % 2 != 0)
+            throw new IllegalArgumentException("replacements must be a multiple of 2");
+        val template = get(locale, key);
+        if (template == null)
+            return key;
+        if (replacements == null || replacements.length == 0)
+            return template.render();
+        return template.render(name -> {
+            for (int i = 0; i < replacements.length; i += 2) {
+                if (name.equals(String.valueOf(replacements[i])))
+                    return Objects.toString(replacements[i + 1]);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Formats a message, resolving every placeholder by name.
+     *
+     * @param locale   the locale, or null for the default locale
+     * @param key      the key of the message
+     * @param resolver the function giving the value of a placeholder, or null to keep it as is
+     * @return the message, or the key if no locale has it
+     */
+    @NonNull
+    public String format(final @Nullable String locale, final @NonNull String key,
+                         final @NonNull Function<? super String, ?> resolver) {
+        val template = get(locale, key);
+        return template == null ? key : template.render(resolver);
+    }
+
+    /**
+     * Sends a message in the default locale.
+     *
+     * @param sender       the receiver
+     * @param key          the key of the message
+     * @param replacements the names and values of the placeholders, alternating
+     */
+    public void send(final @NonNull CommandSender sender, final @NonNull String key, final Object... replacements) {
+        sender.sendMessage(format(null, key, replacements));
+    }
+
+    /**
+     * Sends a message in a locale.
+     *
+     * @param sender       the receiver
+     * @param locale       the locale, or null for the default locale
+     * @param key          the key of the message
+     * @param replacements the names and values of the placeholders, alternating
+     */
+    public void send(final @NonNull CommandSender sender, final @Nullable String locale, final @NonNull String key,
+                     final Object... replacements) {
+        sender.sendMessage(format(locale, key, replacements));
+    }
+
+    /**
+     * Every compiled message, swapped at once on reload.
+     */
+    private static final class Tables {
+
+        // The messages of every locale file, and of every locale along with its fallbacks.
+        private final Map<String, Map<String, Template>> own;
+        private final Map<String, Map<String, Template>> flattened;
+        private final Map<String, Template> fallback;
+        // Locales that were asked for, resolved to their table.
+        private final Map<String, Map<String, Template>> resolved = new ConcurrentHashMap<>();
+
+        private Tables(final @NonNull Map<String, Map<String, Template>> own,
+                       final @NonNull Map<String, Map<String, Template>> flattened,
+                       final @NonNull String defaultLocale) {
+            this.own = own;
+            this.flattened = flattened;
+            this.fallback = flattened.getOrDefault(defaultLocale, Collections.emptyMap());
+        }
+
+        @NonNull
+        private Map<String, Template> table(final @Nullable String locale) {
+            if (locale == null)
+                return fallback;
+            val table = resolved.get(locale);
+            if (table != null)
+                return table;
+            return resolved.computeIfAbsent(locale, this::resolve);
+        }
+
+        @NonNull
+        private Map<String, Template> resolve(final @NonNull String locale) {
+            val normalized = normalize(locale);
+            val exact = flattened.get(normalized);
+            if (exact != null)
+                return exact;
+            return flattened.getOrDefault(language(normalized), fallback);
+        }
+
+    }
+
+}
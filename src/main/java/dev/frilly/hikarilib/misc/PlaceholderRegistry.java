@@ -0,0 +1,312 @@
+package dev.frilly.hikarilib.misc;
+
+import lombok.NonNull;
+import lombok.val;
+import lombok.var;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A registry of named placeholder providers, called only when their placeholder is rendered.
+ * <p>
+ * Every value is memoized for a number of ticks, one by default, so rendering hundreds of lines in
+ * the same tick computes every value once. Providers can be global, or per viewer, usually per
+ * player, in which case values are memoized per viewer.
+ * <pre>{@code
+ * PlaceholderRegistry<Player> placeholders = PlaceholderRegistry.create(plugin);
+ * placeholders.register("online", () -> Bukkit.getOnlinePlayers().size(), 20);
+ * placeholders.registerPerViewer("balance", player -> economy.getBalance(player));
+ * placeholders.render("%online% online, you have %balance%", player);
+ * }</pre>
+ * Placeholders without a provider, and providers returning null, are kept as is.
+ *
+ * @param <T> the type of viewers, usually players
+ */
+public final class PlaceholderRegistry<T> {
+
+    // How often expired values are dropped, in ticks, and how many templates are kept compiled.
+    private static final long PURGE_PERIOD = 100;
+    private static final int MAX_TEMPLATES = 1024;
+
+    private final LongSupplier clock;
+    private final Map<String, Provider<T>> providers = new ConcurrentHashMap<>();
+    private final Map<String, Template> templates = new ConcurrentHashMap<>();
+    private volatile long lastPurge;
+    private volatile boolean closed = false;
+
+    private PlaceholderRegistry(final @NonNull LongSupplier clock) {
+        this.clock = clock;
+        this.lastPurge = clock.getAsLong();
+    }
+
+    /**
+     * Creates a registry counting ticks on the main thread of a plugin, until it is closed.
+     *
+     * @param plugin the plugin
+     * @param <T>    the type of viewers
+     * @return the registry
+     */
+    @NonNull
+    public static <T> PlaceholderRegistry<T> create(final @NonNull JavaPlugin plugin) {
+        val ticks = new AtomicLong();
+        val registry = new PlaceholderRegistry<T>(ticks::get);
+        Tasks.runTimer(plugin, runnable -> {
+            if (registry.closed)
+                runnable.cancel();
+            else
+                ticks.incrementAndGet();
+        }, 1, 1);
+        return registry;
+    }
+
+    /**
+     * Creates a registry reading the current tick from a clock.
+     *
+     * @param clock the clock, giving the current tick
+     * @param <T>   the type of viewers
+     * @return the registry
+     */
+    @NonNull
+    public static <T> PlaceholderRegistry<T> create(final @NonNull LongSupplier clock) {
+        return new PlaceholderRegistry<>(clock);
+    }
+
+    /**
+     * Registers a global placeholder, memoized for the current tick.
+     *
+     * @param name     the placeholder name, without %
+     * @param supplier the provider of its value
+     * @return this registry
+     */
+    @NonNull
+    public PlaceholderRegistry<T> register(final @NonNull String name, final @NonNull Supplier<?> supplier) {
+        return register(name, supplier, 1);
+    }
+
+    /**
+     * Registers a global placeholder, replacing any previous one with the same name.
+     *
+     * @param name     the placeholder name, without %
+     * @param supplier the provider of its value
+     * @param ticks    the number of ticks to memoize values for, at least 1
+     * @return this registry
+     */
+    @NonNull
+    public PlaceholderRegistry<T> register(final @NonNull String name, final @NonNull Supplier<?> supplier,
+                                           final int ticks) {
+        providers.put(name, new Provider<>(viewer -> supplier.get(), ticks, false));
+        return this;
+    }
+
+    /**
+     * Registers a placeholder per viewer, memoized for the current tick.
+     *
+     * @param name     the placeholder name, without %
+     * @param provider the provider of its value for a viewer
+     * @return this registry
+     */
+    @NonNull
+    public PlaceholderRegistry<T> registerPerViewer(final @NonNull String name,
+                                                    final @NonNull Function<? super T, ?> provider) {
+        return registerPerViewer(name, provider, 1);
+    }
+
+    /**
+     * Registers a placeholder per viewer, replacing any previous one with the same name. It is kept
+     * as is when rendered without a viewer.
+     *
+     * @param name     the placeholder name, without %
+     * @param provider the provider of its value for a viewer
+     * @param ticks    the number of ticks to memoize values for, at least 1
+     * @return this registry
+     */
+    @NonNull
+    public PlaceholderRegistry<T> registerPerViewer(final @NonNull String name,
+                                                    final @NonNull Function<? super T, ?> provider,
+                                                    final int ticks) {
+        providers.put(name, new Provider<>(provider, ticks, true));
+        return this;
+    }
+
+    /**
+     * Unregisters a placeholder.
+     *
+     * @param name the placeholder name
+     * @return whether it was registered
+     */
+    public boolean unregister(final @NonNull String name) {
+        return providers.remove(name) != null;
+    }
+
+    /**
+     * Gets the names of every registered placeholder.
+     *
+     * @return the names
+     */
+    @NonNull
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(providers.keySet());
+    }
+
+    /**
+     * Gets the value of a placeholder, computing it only if it isn't memoized.
+     *
+     * @param name   the placeholder name
+     * @param viewer the viewer, or null
+     * @return the value, or null if there is none
+     */
+    @Nullable
+    public Object resolve(final @NonNull String name, final @Nullable T viewer) {
+        val provider = providers.get(name);
+        if (provider == null)
+            return null;
+
+        val now = clock.getAsLong();
+        if (now - lastPurge >= PURGE_PERIOD)
+            purge(now);
+        return provider.get(viewer, now);
+    }
+
+    /**
+     * Renders a template, computing only the placeholders it has.
+     *
+     * @param template the template
+     * @param viewer   the viewer, or null
+     * @return the rendered string
+     */
+    @NonNull
+    public String render(final @NonNull Template template, final @Nullable T viewer) {
+        return template.render(name -> resolve(name, viewer));
+    }
+
+    /**
+     * Renders a string, compiling it into a {@link Template} the first time it is seen.
+     *
+     * @param text   the string
+     * @param viewer the viewer, or null
+     * @return the rendered string
+     */
+    @NonNull
+    public String render(final @NonNull String text, final @Nullable T viewer) {
+        var template = templates.get(text);
+        if (template == null) {
+            if (templates.size() >= MAX_TEMPLATES)
+                templates.clear();
+            template = Template.of(text);
+            templates.put(text, template);
+        }
+        return render(template, viewer);
+    }
+
+    /**
+     * Forgets every memoized value.
+     */
+    public void invalidate() {
+        for (val provider : providers.values())
+            provider.clear();
+    }
+
+    /**
+     * Forgets every memoized value of a viewer, such as when they quit.
+     *
+     * @param viewer the viewer
+     */
+    public void invalidate(final @NonNull T viewer) {
+        for (val provider : providers.values())
+            provider.clear(viewer);
+    }
+
+    /**
+     * Stops counting ticks, if the registry was created with a plugin.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    private void purge(final long now) {
+        lastPurge = now;
+        for (val provider : providers.values())
+            provider.purge(now);
+    }
+
+    /**
+     * A provider, along with its memoized values.
+     */
+    private static final class Provider<T> {
+
+        private final Function<? super T, ?> function;
+        private final int ticks;
+        private final boolean perViewer;
+        private volatile Memo global;
+        private final Map<Object, Memo> viewers = new ConcurrentHashMap<>();
+
+        private Provider(final @NonNull Function<? super T, ?> function, final int ticks, final boolean perViewer) {
+            if (ticks < 1)
+                throw new IllegalArgumentException("ticks must be at least 1");
+            this.function = function;
+            this.ticks = ticks;
+            this.perViewer = perViewer;
+        }
+
+        @Nullable
+        private Object get(final @Nullable T viewer, final long now) {
+            if (!perViewer) {
+                var memo = global;
+                if (memo == null || memo.expires <= now)
+                    global = memo = new Memo(function.apply(null), now + ticks);
+                return memo.value;
+            }
+
+            if (viewer == null)
+                return null;
+            var memo = viewers.get(viewer);
+            if (memo == null || memo.expires <= now) {
+                memo = new Memo(function.apply(viewer), now + ticks);
+                viewers.put(viewer, memo);
+            }
+            return memo.value;
+        }
+
+        private void clear() {
+            global = null;
+            viewers.clear();
+        }
+
+        private void clear(final @NonNull Object viewer) {
+            viewers.remove(viewer);
+        }
+
+        private void purge(final long now) {
+            viewers.values().removeIf(memo -> memo.expires <= now);
+            val memo = global;
+            if (memo != null && memo.expires <= now)
+                global = null;
+        }
+
+    }
+
+    /**
+     * A value, along with the tick it expires at.
+     */
+    private static final class Memo {
+
+        private final Object value;
+        private final long expires;
+
+        private Memo(final @Nullable Object value, final long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+
+    }
+
+}
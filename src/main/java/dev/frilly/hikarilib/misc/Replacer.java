@@ -0,0 +1,348 @@
+package dev.frilly.hikarilib.misc;
+
+import dev.frilly.hikarilib.collections.Pair;
+import lombok.NonNull;
+import lombok.val;
+import lombok.var;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Replaces many patterns at once, in a single scan of the string, through an Aho-Corasick automaton.
+ * <p>
+ * Where {@link Strings#replacePlaceholders} scans the string once per pair, a replacer scans it
+ * once, no matter how many patterns it has, which suits large tables such as placeholders, emoji
+ * shortcodes or chat filters. When patterns overlap, the leftmost one wins, then the longest one.
+ * Replaced text is never scanned again.
+ * <p>
+ * Replacers are immutable, and can be shared between threads.
+ * <pre>{@code
+ * Replacer filter = Replacer.builder().ignoreCase().wholeWords().add("heck", "****").build();
+ * filter.replace("What the HECK");
+ * }</pre>
+ */
+public final class Replacer {
+
+    private final boolean ignoreCase;
+    private final boolean wholeWords;
+
+    // The automaton, one entry per state. Transitions are sorted by character.
+    private final char[][] keys;
+    private final int[][] targets;
+    private final int[] fail;
+    // The length of the pattern ending at a state, and the next state down the failure links that has one.
+    private final int[] lengths;
+    private final int[] outputs;
+    private final String[] replacements;
+    private final int size;
+
+    private Replacer(final @NonNull Builder builder) {
+        this.ignoreCase = builder.ignoreCase;
+        this.wholeWords = builder.wholeWords;
+
+        // The trie.
+        val children = new ArrayList<TreeMap<Character, Integer>>();
+        val lengths = new ArrayList<Integer>();
+        val replacements = new ArrayList<String>();
+        children.add(new TreeMap<>());
+        lengths.add(0);
+        replacements.add(null);
+        for (val entry : builder.patterns.entrySet()) {
+            var state = 0;
+            for (val c : entry.getKey().toCharArray()) {
+                val key = fold(c);
+                var next = children.get(state).get(key);
+                if (next == null) {
+                    next = children.size();
+                    children.get(state).put(key, next);
+                    children.add(new TreeMap<>());
+                    lengths.add(0);
+                    replacements.add(null);
+                }
+                state = next;
+            }
+            lengths.set(state, entry.getKey().length());
+            replacements.set(state, entry.getValue());
+        }
+
+        val states = children.size();
+        this.keys = new char[states][];
+        this.targets = new int[states][];
+        this.lengths = new int[states];
+        this.replacements = replacements.toArray(new String[0]);
+        for (var state = 0; state < states; state++) {
+            val map = children.get(state);
+            keys[state] = new char[map.size()];
+            targets[state] = new int[map.size()];
+            var i = 0;
+            for (val child : map.entrySet()) {
+                keys[state][i] = child.getKey();
+                targets[state][i] = child.getValue();
+                i++;
+            }
+            this.lengths[state] = lengths.get(state);
+        }
+        this.size = (int) lengths.stream().filter(length -> length != 0).count();
+
+        // The failure and output links, breadth first so that shallower states are done first.
+        this.fail = new int[states];
+        this.outputs = new int[states];
+        outputs[0] = -1;
+        val queue = new ArrayDeque<Integer>();
+        for (val child : targets[0]) {
+            fail[child] = 0;
+            outputs[child] = -1;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            val state = queue.poll();
+            for (var i = 0; i < keys[state].length; i++) {
+                val child = targets[state][i];
+                var link = fail[state];
+                while (link != 0 && transition(link, keys[state][i]) == -1)
+                    link = fail[link];
+                val next = transition(link, keys[state][i]);
+                fail[child] = next == -1 || next == child ? 0 : next;
+                outputs[child] = this.lengths[fail[child]] != 0 ? fail[child] : outputs[fail[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Creates a replacer from pairs of patterns and replacements.
+     *
+     * @param pairs the patterns and their replacements
+     * @return the replacer
+     */
+    @NonNull
+    @SafeVarargs
+    public static Replacer of(final @NonNull Pair<String, ?>... pairs) {
+        val builder = builder();
+        for (val pair : pairs)
+            builder.add(pair.getFirst(), pair.getSecond());
+        return builder.build();
+    }
+
+    /**
+     * Creates a replacer from a map of patterns to replacements.
+     *
+     * @param map the patterns and their replacements
+     * @return the replacer
+     */
+    @NonNull
+    public static Replacer of(final @NonNull Map<String, ?> map) {
+        val builder = builder();
+        for (val entry : map.entrySet())
+            builder.add(entry.getKey(), entry.getValue());
+        return builder.build();
+    }
+
+    /**
+     * Creates a replacer replacing every %name% with its value, just like
+     * {@link Strings#replacePlaceholders(String, Pair[])}.
+     *
+     * @param pairs the names and their values
+     * @return the replacer
+     */
+    @NonNull
+    public static Replacer placeholders(final @NonNull Pair<?, ?>... pairs) {
+        val builder = builder();
+        for (val pair : pairs)
+            builder.add("%" + pair.getFirst() + "%", pair.getSecond());
+        return builder.build();
+    }
+
+    /**
+     * Creates a new builder.
+     *
+     * @return the builder
+     */
+    @NonNull
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private char fold(final char c) {
+        return ignoreCase ? Character.toLowerCase(Character.toUpperCase(c)) : c;
+    }
+
+    private int transition(final int state, final char c) {
+        val index = Arrays.binarySearch(keys[state], c);
+        return index < 0 ? -1 : targets[state][index];
+    }
+
+    /**
+     * Gets the length of the longest match starting at every index of the text, or null if nothing
+     * matches.
+     */
+    private int[] longestMatches(final @NonNull CharSequence text, final boolean firstOnly) {
+        int[] longest = null;
+        var state = 0;
+        for (var i = 0; i < text.length(); i++) {
+            val c = fold(text.charAt(i));
+            var next = transition(state, c);
+            while (next == -1 && state != 0) {
+                state = fail[state];
+                next = transition(state, c);
+            }
+            state = next == -1 ? 0 : next;
+
+            for (var match = lengths[state] != 0 ? state : outputs[state]; match != -1; match = outputs[match]) {
+                val length = lengths[match];
+                val start = i - length + 1;
+                if (wholeWords && !isWord(text, start, i + 1))
+                    continue;
+                if (longest == null)
+                    longest = new int[text.length()];
+                if (length > longest[start])
+                    longest[start] = length;
+                if (firstOnly)
+                    return longest;
+            }
+        }
+        return longest;
+    }
+
+    private boolean isWord(final @NonNull CharSequence text, final int start, final int end) {
+        return (start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1)))
+                && (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)));
+    }
+
+    /**
+     * Replaces every match in a text.
+     *
+     * @param text the text
+     * @return the text with every match replaced, or the text itself if nothing matched
+     */
+    @NonNull
+    public String replace(final @NonNull CharSequence text) {
+        val longest = longestMatches(text, false);
+        if (longest == null)
+            return text.toString();
+
+        val builder = new StringBuilder(text.length() + 16);
+        var i = 0;
+        while (i < text.length()) {
+            val length = longest[i];
+            if (length == 0) {
+                builder.append(text.charAt(i++));
+                continue;
+            }
+            builder.append(replacements[stateOf(text, i, length)]);
+            i += length;
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Gets the state a pattern ends at, by walking the trie.
+     */
+    private int stateOf(final @NonNull CharSequence text, final int start, final int length) {
+        var state = 0;
+        for (var i = start; i < start + length; i++)
+            state = transition(state, fold(text.charAt(i)));
+        return state;
+    }
+
+    /**
+     * Checks whether any pattern matches in a text.
+     *
+     * @param text the text
+     * @return whether something matches
+     */
+    public boolean matches(final @NonNull CharSequence text) {
+        return longestMatches(text, true) != null;
+    }
+
+    /**
+     * Gets the number of patterns.
+     *
+     * @return the number of patterns
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Builds {@link Replacer}s.
+     */
+    public static final class Builder {
+
+        private final Map<String, String> patterns = new LinkedHashMap<>();
+        private boolean ignoreCase = false;
+        private boolean wholeWords = false;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a pattern, replacing any previous replacement of it.
+         *
+         * @param pattern     the pattern, which can't be empty
+         * @param replacement the replacement
+         * @return this builder
+         */
+        @NonNull
+        public Builder add(final @NonNull String pattern, final Object replacement) {
+            if (pattern.isEmpty())
+                throw new IllegalArgumentException("pattern can't be empty");
+            patterns.put(pattern, Objects.toString(replacement));
+            return this;
+        }
+
+        /**
+         * Adds every pair of pattern and replacement.
+         *
+         * @param pairs the pairs
+         * @return this builder
+         */
+        @NonNull
+        public Builder addAll(final @NonNull List<? extends Pair<String, ?>> pairs) {
+            for (val pair : pairs)
+                add(pair.getFirst(), pair.getSecond());
+            return this;
+        }
+
+        /**
+         * Matches patterns regardless of case.
+         *
+         * @return this builder
+         */
+        @NonNull
+        public Builder ignoreCase() {
+            this.ignoreCase = true;
+            return this;
+        }
+
+        /**
+         * Only matches patterns that are not surrounded by letters or digits, such as for word filters.
+         *
+         * @return this builder
+         */
+        @NonNull
+        public Builder wholeWords() {
+            this.wholeWords = true;
+            return this;
+        }
+
+        /**
+         * Builds the replacer.
+         *
+         * @return the replacer
+         */
+        @NonNull
+        public Replacer build() {
+            return new Replacer(this);
+        }
+
+    }
+
+}
@@ -7,6 +7,7 @@ import lombok.val;
 import lombok.var;
 import org.bukkit.ChatColor;
 
+import java.nio.CharBuffer;
 import java.util.Objects;
 
 /**
@@ -31,51 +32,159 @@ public final class Strings {
      *
      * @param s      the string
      * @param prefix the prefix
-     * @return the string without the prefix
+     * @return the string without the prefix, or the string itself if it doesn't start with it
      */
     @NonNull
     public String removePrefix(final @NonNull String s, final @NonNull String prefix) {
         return s.startsWith(prefix) ? s.substring(prefix.length()) : s;
     }
 
+    /**
+     * Removes the prefix from a sequence if it starts with it, without copying it.
+     *
+     * @param s      the sequence
+     * @param prefix the prefix
+     * @return a view of the sequence without the prefix, or the sequence itself if it doesn't start with it
+     */
+    @NonNull
+    public CharSequence removePrefix(final @NonNull CharSequence s, final @NonNull CharSequence prefix) {
+        if (prefix.length() == 0 || !regionMatches(s, 0, prefix))
+            return s;
+        return view(s, prefix.length(), s.length());
+    }
+
     /**
      * Removes the suffix from the string if it ends with it.
      *
      * @param s      the string
      * @param suffix the suffix
-     * @return the string without the suffix
+     * @return the string without the suffix, or the string itself if it doesn't end with it
      */
     @NonNull
     public String removeSuffix(final @NonNull String s, final @NonNull String suffix) {
         return s.endsWith(suffix) ? s.substring(0, s.length() - suffix.length()) : s;
     }
 
+    /**
+     * Removes the suffix from a sequence if it ends with it, without copying it.
+     *
+     * @param s      the sequence
+     * @param suffix the suffix
+     * @return a view of the sequence without the suffix, or the sequence itself if it doesn't end with it
+     */
+    @NonNull
+    public CharSequence removeSuffix(final @NonNull CharSequence s, final @NonNull CharSequence suffix) {
+        val start = s.length() - suffix.length();
+        if (suffix.length() == 0 || start < 0 || !regionMatches(s, start, suffix))
+            return s;
+        return view(s, 0, start);
+    }
+
     /**
      * Removes only leading whitespaces.
      *
      * @param s the string
-     * @return the string without leading whitespaces
+     * @return the string without leading whitespaces, or the string itself if it has none
      */
     @NonNull
     public String trimLeft(final @NonNull String s) {
-        return s.replaceAll("^\\s+", "");
+        val start = leadingEnd(s);
+        return start == 0 ? s : s.substring(start);
+    }
+
+    /**
+     * Removes only leading whitespaces, without copying the sequence.
+     *
+     * @param s the sequence
+     * @return a view of the sequence without leading whitespaces, or the sequence itself if it has none
+     */
+    @NonNull
+    public CharSequence trimLeft(final @NonNull CharSequence s) {
+        val start = leadingEnd(s);
+        return start == 0 ? s : view(s, start, s.length());
     }
 
     /**
      * Removes only trailing whitespaces.
      *
      * @param s the string
-     * @return the string without trailing whitespaces
+     * @return the string without trailing whitespaces, or the string itself if it has none
      */
     @NonNull
     public String trimRight(final @NonNull String s) {
-        return s.replaceAll("\\s+$", "");
+        val end = trailingStart(s);
+        return end == s.length() ? s : s.substring(0, end);
+    }
+
+    /**
+     * Removes only trailing whitespaces, without copying the sequence.
+     *
+     * @param s the sequence
+     * @return a view of the sequence without trailing whitespaces, or the sequence itself if it has none
+     */
+    @NonNull
+    public CharSequence trimRight(final @NonNull CharSequence s) {
+        val end = trailingStart(s);
+        return end == s.length() ? s : view(s, 0, end);
+    }
+
+    /**
+     * Checks whether two sequences have the same characters, such as a view and a string.
+     *
+     * @param a the first sequence
+     * @param b the second sequence
+     * @return whether they have the same characters
+     */
+    public boolean contentEquals(final @NonNull CharSequence a, final @NonNull CharSequence b) {
+        return a.length() == b.length() && regionMatches(a, 0, b);
+    }
+
+    /**
+     * Checks whether a character is a whitespace, as matched by \s in regular expressions.
+     */
+    private boolean isWhitespace(final char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\013' || c == '\f' || c == '\r';
+    }
+
+    private int leadingEnd(final @NonNull CharSequence s) {
+        var i = 0;
+        while (i < s.length() && isWhitespace(s.charAt(i)))
+            i++;
+        return i;
+    }
+
+    private int trailingStart(final @NonNull CharSequence s) {
+        var i = s.length();
+        while (i > 0 && isWhitespace(s.charAt(i - 1)))
+            i--;
+        return i;
+    }
+
+    private boolean regionMatches(final @NonNull CharSequence s, final int offset, final @NonNull CharSequence other) {
+        if (offset + other.length() > s.length())
+            return false;
+        for (var i = 0; i < other.length(); i++) {
+            if (s.charAt(offset + i) != other.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets a read-only view of part of a sequence, sharing its characters.
+     */
+    @NonNull
+    private CharSequence view(final @NonNull CharSequence s, final int start, final int end) {
+        return CharBuffer.wrap(s, start, end);
     }
 
     /**
      * Replaces all occurrences of %value% with the corresponding value.
      * <p>
      * For example, a Pair containing "name" and "John" will replace all occurrences of %name% with John.
+     * <p>
+     * This scans the string once per replacement, use a {@link Template} for strings rendered often, or
+     * a {@link Replacer} for large tables of replacements.
      *
      * @param s            the string
      * @param replacements the replacements
@@ -102,10 +211,10 @@ public final class Strings {
             return s;
         if (replacements.length % 2 != 0)
             throw new IllegalArgumentException("replacements must be a multiple of 2");
-        val array = new Pair<?, ?>[replacements.length / 2];
+        var result = s;
         for (int i = 0; i < replacements.length; i += 2)
-            array[i / 2] = Pair.of(replacements[i], replacements[i + 1]);
-        return replacePlaceholders(s, array);
+            result = result.replace("%" + replacements[i] + "%", Objects.toString(replacements[i + 1]));
+        return result;
     }
 
 }
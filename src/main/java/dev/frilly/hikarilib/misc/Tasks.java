@@ -1,11 +1,31 @@
 package dev.frilly.hikarilib.misc;
 
+import dev.frilly.hikarilib.scheduler.BatchScheduler;
+import dev.frilly.hikarilib.scheduler.TaskBackend;
+import dev.frilly.hikarilib.scheduler.TaskPriority;
+import dev.frilly.hikarilib.scheduler.Timeout;
+import dev.frilly.hikarilib.scheduler.TimingWheel;
 import lombok.NonNull;
 import lombok.experimental.UtilityClass;
+import lombok.val;
+import org.bukkit.Bukkit;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.scheduler.BukkitRunnable;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Utility class for running tasks.
@@ -13,6 +33,206 @@ import java.util.function.Consumer;
 @UtilityClass
 public final class Tasks {
 
+    private final int ASYNC_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private final AtomicInteger asyncThreadCount = new AtomicInteger();
+
+    private final ThreadPoolExecutor async = newAsyncExecutor();
+
+    // Weakly keyed, so that plugins which were reloaded don't stay in memory.
+    private final Map<JavaPlugin, TaskBackend> backends = Collections.synchronizedMap(new WeakHashMap<>());
+
+    @NonNull
+    private ThreadPoolExecutor newAsyncExecutor() {
+        val executor = new ThreadPoolExecutor(ASYNC_THREADS, ASYNC_THREADS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            val thread = new Thread(runnable, "HikariLibrary Async #" + asyncThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Idle threads go away, so the executor never needs to be shut down.
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Sets how the delayed tasks of a plugin, from {@link #runLater} and {@link #runLaterAsync}, are
+     * scheduled. Every plugin uses {@link TaskBackend#BUKKIT} until it sets another backend.
+     * <p>
+     * The {@link TaskBackend#TIMING_WHEEL} backend suits plugins scheduling many delayed tasks, such as
+     * cooldowns. Tasks cancelling their {@link BukkitRunnable} then cancel their {@link Timeout}.
+     *
+     * @param plugin  The plugin.
+     * @param backend The backend.
+     */
+    public void setBackend(@NonNull JavaPlugin plugin, @NonNull TaskBackend backend) {
+        if (backend == TaskBackend.BUKKIT)
+            backends.remove(plugin);
+        else
+            backends.put(plugin, backend);
+    }
+
+    /**
+     * Gets how the delayed tasks of a plugin are scheduled.
+     *
+     * @param plugin The plugin.
+     * @return The backend.
+     */
+    @NonNull
+    public TaskBackend getBackend(@NonNull JavaPlugin plugin) {
+        val backend = backends.get(plugin);
+        return backend == null ? TaskBackend.BUKKIT : backend;
+    }
+
+    /**
+     * Gets an executor that runs every task synchronously, on the next tick of the main thread.
+     * <p>
+     * This is meant for switching back to the main thread from futures, for example
+     * {@code file.reloadAsync().thenRunAsync(() -> ..., Tasks.sync(plugin))}.
+     *
+     * @param plugin The plugin to run the tasks on.
+     * @return The executor.
+     */
+    @NonNull
+    public Executor sync(@NonNull JavaPlugin plugin) {
+        return runnable -> Bukkit.getScheduler().runTask(plugin, runnable);
+    }
+
+    /**
+     * Gets an executor that runs every task synchronously, batched with the other batched tasks of the
+     * plugin, see {@link #runBatched(JavaPlugin, Runnable)}.
+     * <p>
+     * Unlike {@link #sync(JavaPlugin)}, every completion of a tick is run from the same repeating task,
+     * so chaining many futures back to the main thread doesn't schedule one Bukkit task per stage.
+     *
+     * @param plugin The plugin to run the tasks on.
+     * @return The executor.
+     */
+    @NonNull
+    public Executor syncBatched(@NonNull JavaPlugin plugin) {
+        return runnable -> runBatched(plugin, runnable, TaskPriority.HIGH);
+    }
+
+    /**
+     * Gets the executor running tasks off the main thread, on a few shared daemon threads. Tasks
+     * queue up while every thread is busy.
+     *
+     * @return The executor.
+     */
+    @NonNull
+    public Executor async() {
+        return async;
+    }
+
+    /**
+     * Computes a value off the main thread.
+     * <p>
+     * This is meant to start pipelines, for example
+     * {@code Tasks.thenSync(plugin, Tasks.supplyAsync(() -> load(file)), data -> apply(data))}.
+     *
+     * @param supplier The task computing the value.
+     * @param <T>      The type of the value.
+     * @return The future completing with the value.
+     */
+    @NonNull
+    public <T> CompletableFuture<T> supplyAsync(@NonNull Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(supplier, async);
+    }
+
+    /**
+     * Computes a value on the main thread, batched with the other batched tasks of the plugin.
+     *
+     * @param plugin   The plugin to run the task on.
+     * @param callable The task computing the value.
+     * @param <T>      The type of the value.
+     * @return The future completing with the value, or with what the task threw. It is cancelled if the
+     * scheduler is closed before running the task.
+     */
+    @NonNull
+    public <T> CompletableFuture<T> callSync(@NonNull JavaPlugin plugin, @NonNull Callable<T> callable) {
+        return call(syncBatched(plugin), callable);
+    }
+
+    /**
+     * Computes a value on the thread ticking a batch scheduler, like
+     * {@link #callSync(JavaPlugin, Callable)}.
+     *
+     * @param scheduler The scheduler to run the task on.
+     * @param callable  The task computing the value.
+     * @param <T>       The type of the value.
+     * @return The future completing with the value, or with what the task threw. It is cancelled if the
+     * scheduler is closed before running the task.
+     */
+    @NonNull
+    public <T> CompletableFuture<T> callSync(@NonNull BatchScheduler scheduler, @NonNull Callable<T> callable) {
+        return call(batched(scheduler), callable);
+    }
+
+    @NonNull
+    private <T> CompletableFuture<T> call(@NonNull Executor executor, @NonNull Callable<T> callable) {
+        val future = new CompletableFuture<T>();
+        executor.execute(new BatchedCall<>(callable, future));
+        return future;
+    }
+
+    @NonNull
+    private <T, U> CompletableFuture<U> then(@NonNull Executor executor, @NonNull CompletableFuture<T> future,
+                                             @NonNull Function<? super T, ? extends U> function) {
+        val result = new CompletableFuture<U>();
+        future.whenComplete((value, throwable) -> {
+            if (throwable != null) {
+                result.completeExceptionally(throwable);
+                return;
+            }
+            try {
+                executor.execute(new BatchedCall<U>(() -> function.apply(value), result));
+            } catch (Throwable rejected) {
+                result.completeExceptionally(rejected);
+            }
+        });
+        return result;
+    }
+
+    @NonNull
+    private Executor batched(@NonNull BatchScheduler scheduler) {
+        return runnable -> scheduler.submit(runnable, TaskPriority.HIGH);
+    }
+
+    /**
+     * Applies a function to the value of a future on the main thread, once it completes, batched with
+     * the other batched tasks of the plugin.
+     *
+     * @param plugin   The plugin to run the function on.
+     * @param future   The future.
+     * @param function The function.
+     * @param <T>      The type of the value.
+     * @param <U>      The type of the result.
+     * @return The future completing with the result. It is cancelled if the scheduler is closed before
+     * running the function.
+     */
+    @NonNull
+    public <T, U> CompletableFuture<U> thenSync(@NonNull JavaPlugin plugin, @NonNull CompletableFuture<T> future,
+                                                @NonNull Function<? super T, ? extends U> function) {
+        return then(syncBatched(plugin), future, function);
+    }
+
+    /**
+     * Applies a function to the value of a future on the thread ticking a batch scheduler, like
+     * {@link #thenSync(JavaPlugin, CompletableFuture, Function)}.
+     *
+     * @param scheduler The scheduler to run the function on.
+     * @param future    The future.
+     * @param function  The function.
+     * @param <T>       The type of the value.
+     * @param <U>       The type of the result.
+     * @return The future completing with the result. It is cancelled if the scheduler is closed before
+     * running the function.
+     */
+    @NonNull
+    public <T, U> CompletableFuture<U> thenSync(@NonNull BatchScheduler scheduler, @NonNull CompletableFuture<T> future,
+                                                @NonNull Function<? super T, ? extends U> function) {
+        return then(batched(scheduler), future, function);
+    }
+
     /**
      * Runs a task synchronously and instantly.
      *
@@ -28,6 +248,31 @@ public final class Tasks {
         }.runTask(plugin);
     }
 
+    /**
+     * Runs a task synchronously, batched with the other batched tasks of the plugin into a single
+     * repeating task, which runs as many of them as fit in its time budget every tick.
+     * <p>
+     * This is meant for submitting many small tasks, such as block updates, see {@link BatchScheduler}.
+     *
+     * @param plugin   The plugin to run the task on.
+     * @param runnable The task to run.
+     */
+    public void runBatched(@NonNull JavaPlugin plugin, @NonNull Runnable runnable) {
+        runBatched(plugin, runnable, TaskPriority.NORMAL);
+    }
+
+    /**
+     * Runs a task synchronously, batched with the other batched tasks of the plugin, see
+     * {@link #runBatched(JavaPlugin, Runnable)}.
+     *
+     * @param plugin   The plugin to run the task on.
+     * @param runnable The task to run.
+     * @param priority The priority of the task.
+     */
+    public void runBatched(@NonNull JavaPlugin plugin, @NonNull Runnable runnable, @NonNull TaskPriority priority) {
+        BatchScheduler.of(plugin).submit(runnable, priority);
+    }
+
     /**
      * Runs a task asynchronously and instantly.
      *
@@ -51,6 +296,12 @@ public final class Tasks {
      * @param delay    The delay in ticks.
      */
     public void runLater(@NonNull JavaPlugin plugin, @NonNull Consumer<BukkitRunnable> consumer, long delay) {
+        if (getBackend(plugin) == TaskBackend.TIMING_WHEEL) {
+            val runnable = new WheelRunnable(consumer);
+            runnable.timeout = TimingWheel.of(plugin).schedule(runnable, delay);
+            return;
+        }
+
         new BukkitRunnable() {
             @Override
             public void run() {
@@ -67,6 +318,12 @@ public final class Tasks {
      * @param delay    The delay in ticks.
      */
     public void runLaterAsync(@NonNull JavaPlugin plugin, @NonNull Consumer<BukkitRunnable> consumer, long delay) {
+        if (getBackend(plugin) == TaskBackend.TIMING_WHEEL) {
+            val runnable = new WheelRunnable(consumer);
+            runnable.timeout = TimingWheel.of(plugin).scheduleAsync(runnable, delay);
+            return;
+        }
+
         new BukkitRunnable() {
             @Override
             public void run() {
@@ -110,4 +367,69 @@ public final class Tasks {
 
     }
 
+    /**
+     * A value computed on a batch scheduler, completing its future. A closing scheduler cancels the tasks
+     * it drops, which cancels the future as well, so that it doesn't wait forever.
+     */
+    private static final class BatchedCall<T> extends FutureTask<T> {
+
+        private final CompletableFuture<T> future;
+
+        private BatchedCall(@NonNull Callable<T> callable, @NonNull CompletableFuture<T> future) {
+            super(callable);
+            this.future = future;
+        }
+
+        @Override
+        protected void set(T value) {
+            super.set(value);
+            future.complete(value);
+        }
+
+        @Override
+        protected void setException(Throwable throwable) {
+            super.setException(throwable);
+            future.completeExceptionally(throwable);
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled())
+                future.cancel(false);
+        }
+
+    }
+
+    /**
+     * A task run by a {@link TimingWheel}, cancelling its timeout instead of a Bukkit task.
+     */
+    private static final class WheelRunnable extends BukkitRunnable {
+
+        private final Consumer<BukkitRunnable> consumer;
+        private volatile Timeout timeout;
+
+        private WheelRunnable(@NonNull Consumer<BukkitRunnable> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void run() {
+            consumer.accept(this);
+        }
+
+        @Override
+        public synchronized void cancel() {
+            // Null only while being scheduled, from another thread than the one ticking the wheel.
+            val timeout = this.timeout;
+            if (timeout != null)
+                timeout.cancel();
+        }
+
+        @Override
+        public synchronized int getTaskId() {
+            return -1;
+        }
+
+    }
+
 }
@@ -0,0 +1,272 @@
+package dev.frilly.hikarilib.misc;
+
+import lombok.NonNull;
+import lombok.val;
+import lombok.var;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * A string with %name% placeholders, parsed once so it can be rendered many times.
+ * <p>
+ * Rendering appends every literal and every value once, into a per-thread buffer, so it costs as
+ * much as the output is long, no matter how many placeholders there are. Values can be looked up by
+ * name, or by index, in the order the placeholders first appear in.
+ * <pre>{@code
+ * Template template = Template.of("%player% has %coins% coins");
+ * template.render(player.getName(), coins);
+ * template.render(name -> lookup(name));
+ * }</pre>
+ * A placeholder name can't be empty, nor contain whitespaces. Any other %, such as in "100%", is
+ * kept as is. Placeholders without a value, or with a null value, are also kept as is.
+ * <p>
+ * Placeholders are read from left to right and never overlap, so {@code 50%off%player%} has the
+ * placeholder {@code off}, followed by the literal {@code player%}. This differs from
+ * {@link Strings#replacePlaceholders(String, Object...)}, which searches for each given name anywhere in
+ * the string. A whitespace after a literal %, as in {@code 50% off %player%}, keeps it out of the
+ * placeholders.
+ */
+public final class Template {
+
+    // Buffers growing past this are not kept around.
+    private static final int MAX_BUFFER = 8192;
+    private static final ThreadLocal<Buffer> BUFFER = ThreadLocal.withInitial(Buffer::new);
+
+    private final String source;
+    private final String[] literals;
+    private final int[] slots;
+    private final String[] names;
+    private final int length;
+
+    private Template(final @NonNull String source, final @NonNull String[] literals, final @NonNull int[] slots,
+                     final @NonNull String[] names) {
+        this.source = source;
+        this.literals = literals;
+        this.slots = slots;
+        this.names = names;
+
+        var length = 0;
+        for (val literal : literals)
+            length += literal.length();
+        this.length = length;
+    }
+
+    /**
+     * Parses a template.
+     *
+     * @param source the string
+     * @return the template
+     */
+    @NonNull
+    public static Template of(final @NonNull String source) {
+        val literals = new ArrayList<String>();
+        val slots = new ArrayList<Integer>();
+        val names = new ArrayList<String>();
+
+        var literalStart = 0;
+        var i = 0;
+        while (i < source.length()) {
+            val end = placeholderEnd(source, i);
+            if (end == -1) {
+                i++;
+                continue;
+            }
+
+            val name = source.substring(i + 1, end);
+            var slot = names.indexOf(name);
+            if (slot == -1) {
+                slot = names.size();
+                names.add(name);
+            }
+            literals.add(source.substring(literalStart, i));
+            slots.add(slot);
+            i = end + 1;
+            literalStart = i;
+        }
+        literals.add(source.substring(literalStart));
+
+        val slotArray = new int[slots.size()];
+        for (var j = 0; j < slotArray.length; j++)
+            slotArray[j] = slots.get(j);
+        return new Template(source, literals.toArray(new String[0]), slotArray, names.toArray(new String[0]));
+    }
+
+    /**
+     * Gets the index of the closing % of the placeholder starting at the provided index, or -1 if there
+     * is no placeholder there.
+     */
+    private static int placeholderEnd(final @NonNull String source, final int start) {
+        if (source.charAt(start) != '%')
+            return -1;
+        for (var i = start + 1; i < source.length(); i++) {
+            val c = source.charAt(i);
+            if (c == '%')
+                return i == start + 1 ? -1 : i;
+            if (Character.isWhitespace(c))
+                return -1;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the string this template was parsed from.
+     *
+     * @return the string
+     */
+    @NonNull
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Gets the distinct placeholder names, in the order they first appear in.
+     *
+     * @return the names
+     */
+    @NonNull
+    public List<String> getNames() {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    /**
+     * Gets the index of a placeholder, to render with values by index.
+     *
+     * @param name the placeholder name
+     * @return the index, or -1 if the template doesn't have it
+     */
+    public int indexOf(final @NonNull String name) {
+        for (var i = 0; i < names.length; i++) {
+            if (names[i].equals(name))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether the template has any placeholder.
+     *
+     * @return whether it has placeholders
+     */
+    public boolean hasPlaceholders() {
+        return slots.length != 0;
+    }
+
+    /**
+     * Renders the template with values by index, in the order the placeholders first appear in.
+     *
+     * @param values the values
+     * @return the rendered string
+     */
+    @NonNull
+    public String render(final Object... values) {
+        if (slots.length == 0)
+            return source;
+        return renderBuffered(slot -> values != null && slot < values.length ? values[slot] : null);
+    }
+
+    /**
+     * Renders the template with values by name.
+     *
+     * @param values the values
+     * @return the rendered string
+     */
+    @NonNull
+    public String render(final @NonNull Map<String, ?> values) {
+        if (slots.length == 0)
+            return source;
+        return renderBuffered(slot -> values.get(names[slot]));
+    }
+
+    /**
+     * Renders the template, resolving every placeholder by name.
+     *
+     * @param resolver the function giving the value of a placeholder, or null to keep it as is
+     * @return the rendered string
+     */
+    @NonNull
+    public String render(final @NonNull Function<? super String, ?> resolver) {
+        if (slots.length == 0)
+            return source;
+        return renderBuffered(slot -> resolver.apply(names[slot]));
+    }
+
+    /**
+     * Renders the template into a builder, resolving every placeholder by name.
+     *
+     * @param builder  the builder
+     * @param resolver the function giving the value of a placeholder, or null to keep it as is
+     * @return the builder
+     */
+    @NonNull
+    public StringBuilder renderTo(final @NonNull StringBuilder builder,
+                                  final @NonNull Function<? super String, ?> resolver) {
+        return append(builder, slot -> resolver.apply(names[slot]));
+    }
+
+    /**
+     * Renders the template into a builder, with values by index.
+     *
+     * @param builder the builder
+     * @param values  the values
+     * @return the builder
+     */
+    @NonNull
+    public StringBuilder renderTo(final @NonNull StringBuilder builder, final Object... values) {
+        return append(builder, slot -> values != null && slot < values.length ? values[slot] : null);
+    }
+
+    @NonNull
+    private String renderBuffered(final @NonNull IntFunction<?> values) {
+        val buffer = BUFFER.get();
+        // Resolvers may render other templates, which then get their own builder.
+        if (buffer.inUse)
+            return append(new StringBuilder(length + 16 * slots.length), values).toString();
+
+        buffer.inUse = true;
+        try {
+            val builder = buffer.builder;
+            builder.setLength(0);
+            return append(builder, values).toString();
+        } finally {
+            buffer.inUse = false;
+            if (buffer.builder.capacity() > MAX_BUFFER)
+                buffer.builder = new StringBuilder(256);
+        }
+    }
+
+    @NonNull
+    private StringBuilder append(final @NonNull StringBuilder builder, final @NonNull IntFunction<?> values) {
+        builder.ensureCapacity(builder.length() + length + 16 * slots.length);
+        for (var i = 0; i < slots.length; i++) {
+            builder.append(literals[i]);
+            val value = values.apply(slots[i]);
+            if (value == null)
+                builder.append('%').append(names[slots[i]]).append('%');
+            else
+                builder.append(value);
+        }
+        return builder.append(literals[slots.length]);
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    /**
+     * The builder rendering reuses, per thread.
+     */
+    private static final class Buffer {
+
+        private StringBuilder builder = new StringBuilder(256);
+        private boolean inUse = false;
+
+    }
+
+}
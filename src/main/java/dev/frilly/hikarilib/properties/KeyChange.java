@@ -0,0 +1,51 @@
+package dev.frilly.hikarilib.properties;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Represents a single key that was added, changed or removed in a {@link PropertiesFile}.
+ */
+@RequiredArgsConstructor(staticName = "of")
+@Value
+@Getter
+public class KeyChange {
+
+    /**
+     * -- GETTER --
+     * Gets what happened to the key.
+     */
+    Type type;
+
+    /**
+     * -- GETTER --
+     * Gets the name of the key.
+     */
+    String key;
+
+    /**
+     * -- GETTER --
+     * Gets the key before the change, null if it was added.
+     */
+    @Nullable
+    PropertyKey oldKey;
+
+    /**
+     * -- GETTER --
+     * Gets the key after the change, null if it was removed.
+     */
+    @Nullable
+    PropertyKey newKey;
+
+    /**
+     * The kinds of changes.
+     */
+    public enum Type {
+        ADDED,
+        CHANGED,
+        REMOVED
+    }
+
+}
@@ -0,0 +1,155 @@
+package dev.frilly.hikarilib.properties;
+
+import dev.frilly.hikarilib.collections.Property;
+import lombok.NonNull;
+import lombok.val;
+import lombok.var;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Stacks several {@link PropertiesFile}s on top of each other, such as per-world overrides, then
+ * server defaults, then bundled defaults. A key resolves to the first layer that has it.
+ * <p>
+ * Every key is resolved once up front into a flattened table, so a lookup is a single hash probe no
+ * matter how many layers there are. The overlay listens to every layer, and a change to a key, or a
+ * reload, only resolves the affected keys again.
+ * <p>
+ * A change is resolved on the thread making it, reading every layer. When a layer is watched, this
+ * is the background watching thread, so every layer that is changed elsewhere must be a
+ * {@link PropertiesFile#concurrent(java.io.File)} file as well.
+ */
+public final class LayeredProperties {
+
+    private final List<PropertiesFile> layers;
+    private final List<Consumer<KeyChange>> listeners = new ArrayList<>();
+    private final Map<String, PropertyKey> resolved = new ConcurrentHashMap<>();
+
+    private LayeredProperties(final @NonNull List<PropertiesFile> layers) {
+        this.layers = layers;
+
+        // Listen first, so no change slips in between building the table and listening. Resolving
+        // always reads the current state of the layers, so racing with a listener is harmless.
+        for (val layer : layers) {
+            final Consumer<KeyChange> listener = it -> resolve(it.getKey());
+            layer.addListener(listener);
+            listeners.add(listener);
+        }
+        for (val layer : layers) {
+            for (val key : layer.keys()) {
+                if (!resolved.containsKey(key.getKey()))
+                    resolve(key.getKey());
+            }
+        }
+    }
+
+    /**
+     * Stacks the provided layers, the first one being the top layer.
+     *
+     * @param layers the layers, from highest to lowest priority
+     * @return the overlay
+     */
+    @NonNull
+    public static LayeredProperties of(final @NonNull PropertiesFile... layers) {
+        return of(Arrays.asList(layers));
+    }
+
+    /**
+     * Stacks the provided layers, the first one being the top layer.
+     *
+     * @param layers the layers, from highest to lowest priority
+     * @return the overlay
+     */
+    @NonNull
+    public static LayeredProperties of(final @NonNull List<PropertiesFile> layers) {
+        if (layers.isEmpty())
+            throw new IllegalArgumentException("There must be at least one layer");
+        return new LayeredProperties(Collections.unmodifiableList(new ArrayList<>(layers)));
+    }
+
+    /**
+     * Resolves a single key again, by walking the layers from the top.
+     *
+     * @param key the key
+     */
+    private synchronized void resolve(final @NonNull String key) {
+        for (val layer : layers) {
+            val property = layer.get(key);
+            if (property.isPresent()) {
+                resolved.put(key, property.get());
+                return;
+            }
+        }
+        resolved.remove(key);
+    }
+
+    /**
+     * Gets a key from the highest layer that has it.
+     *
+     * @param key the key
+     * @return the key wrapped in a property if any layer has it, an empty property otherwise.
+     */
+    @NonNull
+    public Property<PropertyKey> get(final @NonNull String key) {
+        return Property.of(resolved.get(key));
+    }
+
+    /**
+     * Gets a key from the highest layer that has it, throwing a {@link NullPointerException} if no
+     * layer has it.
+     *
+     * @param key the key
+     * @return the key
+     */
+    @NonNull
+    public PropertyKey getRaw(final @NonNull String key) {
+        return get(key).get();
+    }
+
+    /**
+     * Checks if any layer has the provided key.
+     *
+     * @param key the key
+     * @return true if the key resolves
+     */
+    public boolean contains(final @NonNull String key) {
+        return resolved.containsKey(key);
+    }
+
+    /**
+     * Gets every key that resolves in any layer.
+     *
+     * @return a read-only view of the keys
+     */
+    @NonNull
+    public Set<String> keySet() {
+        return Collections.unmodifiableSet(resolved.keySet());
+    }
+
+    /**
+     * Gets the layers, from highest to lowest priority.
+     *
+     * @return the read-only list of layers
+     */
+    @NonNull
+    public List<PropertiesFile> getLayers() {
+        return layers;
+    }
+
+    /**
+     * Stops listening to the layers. The overlay keeps answering with what it last resolved.
+     */
+    public synchronized void close() {
+        for (var i = 0; i < listeners.size(); i++)
+            layers.get(i).removeListener(listeners.get(i));
+        listeners.clear();
+    }
+
+}
@@ -0,0 +1,297 @@
+package dev.frilly.hikarilib.properties;
+
+import lombok.Cleanup;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.val;
+import lombok.var;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * A compact offset index over a memory-mapped .properties file.
+ * <p>
+ * Loading only scans the mapped bytes for record boundaries and hashes every key, keeping three ints
+ * per record plus a small open-addressing table. A record (its comments, key and value) is decoded
+ * and unescaped the first time it is looked up, and cached from then on.
+ */
+final class MappedIndex {
+
+    private static final MappedIndex EMPTY = new MappedIndex(ByteBuffer.allocate(0));
+
+    private final ByteBuffer buffer;
+
+    private int[] starts = new int[64];
+    private int[] ends = new int[64];
+    private int[] hashes = new int[64];
+    private int size = 0;
+
+    private int[] table;
+    private final PropertyKey[] decoded;
+
+    private MappedIndex(final @NonNull ByteBuffer buffer) {
+        this.buffer = buffer;
+        scan();
+        buildTable();
+        this.decoded = new PropertyKey[size];
+    }
+
+    /**
+     * Maps the provided file and indexes it.
+     * <p>
+     * If the file does not exist, or it is not a .properties file, this returns an empty index.
+     *
+     * @param file the file to map
+     * @return the index
+     */
+    @NonNull
+    @SneakyThrows
+    static MappedIndex map(final @NonNull File file) {
+        if (!file.exists() || !file.getName().endsWith(".properties"))
+            return EMPTY;
+
+        @Cleanup val channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        if (channel.size() > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("File is too large to be mapped: " + file);
+        return new MappedIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+
+    private static boolean isLineEnd(final byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    private static boolean isMargin(final byte b) {
+        return b == ' ' || b == '\t' || b == '\f' || b == 0x0B;
+    }
+
+    /**
+     * Gets the position right after the line break ending the line at the provided position.
+     */
+    private int nextLine(int pos) {
+        val limit = buffer.limit();
+        while (pos < limit && !isLineEnd(buffer.get(pos)))
+            pos++;
+        if (pos < limit && buffer.get(pos) == '\r')
+            pos++;
+        if (pos < limit && buffer.get(pos) == '\n')
+            pos++;
+        return pos;
+    }
+
+    /**
+     * Checks whether the line ending right before the provided position continues on the next line.
+     */
+    private boolean continues(final int lineStart, final int next) {
+        var pos = next - 1;
+        while (pos >= lineStart && isLineEnd(buffer.get(pos)))
+            pos--;
+        var backslashes = 0;
+        while (pos >= lineStart && buffer.get(pos) == '\\') {
+            backslashes++;
+            pos--;
+        }
+        return backslashes % 2 == 1;
+    }
+
+    private void scan() {
+        val limit = buffer.limit();
+        var pos = 0;
+        var pendingStart = -1;
+
+        while (pos < limit) {
+            val lineStart = pos;
+            while (pos < limit && isMargin(buffer.get(pos)))
+                pos++;
+
+            // Blank lines, comments stay pending for the next key.
+            if (pos >= limit || isLineEnd(buffer.get(pos))) {
+                pos = nextLine(pos);
+                continue;
+            }
+
+            val first = buffer.get(pos);
+            if (first == '#' || first == '!') {
+                if (pendingStart < 0)
+                    pendingStart = lineStart;
+                pos = nextLine(pos);
+                continue;
+            }
+
+            val recordStart = pendingStart < 0 ? lineStart : pendingStart;
+            pendingStart = -1;
+            val keyHash = hashKey(pos);
+
+            // Skip all continuation lines of this record.
+            var currentLine = lineStart;
+            pos = nextLine(pos);
+            while (pos < limit && continues(currentLine, pos)) {
+                currentLine = pos;
+                pos = nextLine(pos);
+            }
+
+            add(recordStart, pos, keyHash < 0 ? decodeAt(recordStart, pos).getKey().hashCode() : (int) keyHash);
+        }
+    }
+
+    /**
+     * Hashes the key starting at the provided position the same way {@link String#hashCode()} would
+     * hash it once unescaped, without building the string.
+     *
+     * @return the hash as an unsigned int, or -1 if the key is unusual enough to need a full decode
+     */
+    private long hashKey(int pos) {
+        val limit = buffer.limit();
+        var hash = 0;
+
+        while (pos < limit) {
+            var b = buffer.get(pos);
+            if (b == '=' || b == ':' || b == ' ' || isLineEnd(b))
+                return hash & 0xFFFFFFFFL;
+
+            if (b == '\\') {
+                if (pos + 1 >= limit || isLineEnd(buffer.get(pos + 1)))
+                    return -1;
+                pos++;
+                b = buffer.get(pos);
+                if (b != '\\' && b != ':' && b != '=' && b != ' ')
+                    hash = 31 * hash + '\\';
+            }
+
+            // Decode one UTF-8 sequence into UTF-16 units.
+            if (b >= 0) {
+                hash = 31 * hash + b;
+                pos++;
+                continue;
+            }
+
+            val lead = b & 0xFF;
+            final int length;
+            var codePoint = 0;
+            if ((lead & 0xE0) == 0xC0) {
+                length = 2;
+                codePoint = lead & 0x1F;
+            } else if ((lead & 0xF0) == 0xE0) {
+                length = 3;
+                codePoint = lead & 0x0F;
+            } else if ((lead & 0xF8) == 0xF0) {
+                length = 4;
+                codePoint = lead & 0x07;
+            } else {
+                return -1;
+            }
+            if (pos + length > limit)
+                return -1;
+            for (var i = 1; i < length; i++) {
+                val next = buffer.get(pos + i) & 0xFF;
+                if ((next & 0xC0) != 0x80)
+                    return -1;
+                codePoint = (codePoint << 6) | (next & 0x3F);
+            }
+
+            if (Character.isSupplementaryCodePoint(codePoint)) {
+                hash = 31 * hash + Character.highSurrogate(codePoint);
+                hash = 31 * hash + Character.lowSurrogate(codePoint);
+            } else {
+                hash = 31 * hash + codePoint;
+            }
+            pos += length;
+        }
+        return hash & 0xFFFFFFFFL;
+    }
+
+    private void add(final int start, final int end, final int hash) {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        starts[size] = start;
+        ends[size] = end;
+        hashes[size] = hash;
+        size++;
+    }
+
+    private void buildTable() {
+        var capacity = 16;
+        while (capacity < size * 2)
+            capacity <<= 1;
+        table = new int[capacity];
+
+        val mask = capacity - 1;
+        for (var i = 0; i < size; i++) {
+            var slot = mix(hashes[i]) & mask;
+            while (table[slot] != 0)
+                slot = (slot + 1) & mask;
+            table[slot] = i + 1;
+        }
+    }
+
+    private static int mix(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    @NonNull
+    @SneakyThrows
+    private PropertyKey decodeAt(final int start, final int end) {
+        val slice = buffer.duplicate();
+        slice.limit(end).position(start);
+        val chars = StandardCharsets.UTF_8.newDecoder().decode(slice);
+
+        val result = new PropertyKey[1];
+        val parser = new PropertiesParser(it -> result[0] = it);
+        parser.feed(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+        parser.finish();
+        return result[0];
+    }
+
+    @NonNull
+    private PropertyKey decode(final int record) {
+        var key = decoded[record];
+        if (key == null) {
+            key = decodeAt(starts[record], ends[record]);
+            decoded[record] = key;
+        }
+        return key;
+    }
+
+    /**
+     * Looks up a key, decoding its record if it was not already decoded. If a key is defined more than
+     * once, the last definition wins.
+     *
+     * @param key the key
+     * @return the key, or null if it does not exist
+     */
+    @Nullable
+    PropertyKey lookup(final @NonNull String key) {
+        val hash = key.hashCode();
+        val mask = table.length - 1;
+        var slot = mix(hash) & mask;
+        var found = -1;
+
+        while (table[slot] != 0) {
+            val record = table[slot] - 1;
+            if (hashes[record] == hash && record > found && decode(record).getKey().equals(key))
+                found = record;
+            slot = (slot + 1) & mask;
+        }
+        return found < 0 ? null : decoded[found];
+    }
+
+    /**
+     * Decodes every record, in file order.
+     *
+     * @param consumer the consumer receiving every key
+     */
+    void forEach(final @NonNull Consumer<PropertyKey> consumer) {
+        for (var i = 0; i < size; i++)
+            consumer.accept(decode(i));
+    }
+
+}
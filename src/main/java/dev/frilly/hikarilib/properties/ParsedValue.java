@@ -0,0 +1,254 @@
+package dev.frilly.hikarilib.properties;
+
+import lombok.NonNull;
+import lombok.val;
+import lombok.var;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Caches the typed forms of a single raw value.
+ * <p>
+ * Every type is parsed at most once, the first time it is asked for, and kept in its own primitive
+ * slot. Malformed values are remembered as well, so asking again never parses again.
+ * <p>
+ * Values can be shared between threads. A slot is written before its bit is set, so a thread seeing
+ * the bit sees the slot as well. Racing threads may both parse a type, which only wastes the work.
+ */
+final class ParsedValue {
+
+    private static final int INT = 1;
+    private static final int LONG = 1 << 1;
+    private static final int DOUBLE = 1 << 2;
+    private static final int BOOLEAN = 1 << 3;
+    private static final int LIST = 1 << 4;
+    private static final int DURATION = 1 << 5;
+
+    private static final AtomicIntegerFieldUpdater<ParsedValue> PARSED =
+            AtomicIntegerFieldUpdater.newUpdater(ParsedValue.class, "parsed");
+    private static final AtomicIntegerFieldUpdater<ParsedValue> MALFORMED =
+            AtomicIntegerFieldUpdater.newUpdater(ParsedValue.class, "malformed");
+
+    private final String raw;
+    private volatile int parsed = 0;
+    private volatile int malformed = 0;
+
+    private int intValue;
+    private long longValue;
+    private double doubleValue;
+    private boolean booleanValue;
+    private List<String> listValue;
+    private Duration durationValue;
+
+    ParsedValue(final @NonNull String raw) {
+        this.raw = raw;
+    }
+
+    private void set(final @NonNull AtomicIntegerFieldUpdater<ParsedValue> bits, final int type) {
+        int current;
+        do {
+            current = bits.get(this);
+        } while ((current & type) == 0 && !bits.compareAndSet(this, current, current | type));
+    }
+
+    private NumberFormatException malformed(final @NonNull String type) {
+        return new NumberFormatException("Value \"" + raw + "\" is not a valid " + type);
+    }
+
+    private boolean ensureInt() {
+        if ((parsed & INT) == 0) {
+            try {
+                intValue = Integer.parseInt(raw.trim());
+            } catch (NumberFormatException exception) {
+                set(MALFORMED, INT);
+            }
+            set(PARSED, INT);
+        }
+        return (malformed & INT) == 0;
+    }
+
+    private boolean ensureLong() {
+        if ((parsed & LONG) == 0) {
+            try {
+                longValue = Long.parseLong(raw.trim());
+            } catch (NumberFormatException exception) {
+                set(MALFORMED, LONG);
+            }
+            set(PARSED, LONG);
+        }
+        return (malformed & LONG) == 0;
+    }
+
+    private boolean ensureDouble() {
+        if ((parsed & DOUBLE) == 0) {
+            try {
+                doubleValue = Double.parseDouble(raw.trim());
+            } catch (NumberFormatException exception) {
+                set(MALFORMED, DOUBLE);
+            }
+            set(PARSED, DOUBLE);
+        }
+        return (malformed & DOUBLE) == 0;
+    }
+
+    private boolean ensureDuration() {
+        if ((parsed & DURATION) == 0) {
+            try {
+                durationValue = parseDuration(raw.trim());
+            } catch (RuntimeException exception) {
+                set(MALFORMED, DURATION);
+            }
+            set(PARSED, DURATION);
+        }
+        return (malformed & DURATION) == 0;
+    }
+
+    int getInt() {
+        if (!ensureInt())
+            throw malformed("int");
+        return intValue;
+    }
+
+    int getInt(final int def) {
+        return ensureInt() ? intValue : def;
+    }
+
+    long getLong() {
+        if (!ensureLong())
+            throw malformed("long");
+        return longValue;
+    }
+
+    long getLong(final long def) {
+        return ensureLong() ? longValue : def;
+    }
+
+    double getDouble() {
+        if (!ensureDouble())
+            throw malformed("double");
+        return doubleValue;
+    }
+
+    double getDouble(final double def) {
+        return ensureDouble() ? doubleValue : def;
+    }
+
+    boolean getBoolean() {
+        if ((parsed & BOOLEAN) == 0) {
+            booleanValue = Boolean.parseBoolean(raw.trim());
+            set(PARSED, BOOLEAN);
+        }
+        return booleanValue;
+    }
+
+    @NonNull
+    List<String> getList() {
+        if ((parsed & LIST) == 0) {
+            listValue = parseList(raw);
+            set(PARSED, LIST);
+        }
+        return listValue;
+    }
+
+    @NonNull
+    Duration getDuration() {
+        if (!ensureDuration())
+            throw new IllegalArgumentException("Value \"" + raw + "\" is not a valid duration");
+        return durationValue;
+    }
+
+    @NonNull
+    Duration getDuration(final @NonNull Duration def) {
+        return ensureDuration() ? durationValue : def;
+    }
+
+    /**
+     * Splits a value on commas and line breaks, trimming every element and dropping empty ones.
+     *
+     * @param raw the raw value
+     * @return the read-only list
+     */
+    @NonNull
+    static List<String> parseList(final @NonNull String raw) {
+        val list = new ArrayList<String>();
+        var start = 0;
+        for (var i = 0; i <= raw.length(); i++) {
+            if (i < raw.length() && raw.charAt(i) != ',' && raw.charAt(i) != '\n')
+                continue;
+            val element = raw.substring(start, i).trim();
+            if (!element.isEmpty())
+                list.add(element);
+            start = i + 1;
+        }
+        return list.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Parses a duration. This accepts ISO-8601 durations ({@code PT1M30S}), plain numbers as seconds,
+     * and sequences of amounts with units, such as {@code 1h30m}, {@code 250ms} or {@code 20t}.
+     * <p>
+     * The supported units are {@code ms}, {@code t} (ticks, 50ms), {@code s}, {@code m}, {@code h}
+     * and {@code d}.
+     *
+     * @param raw the trimmed raw value
+     * @return the duration
+     */
+    @NonNull
+    static Duration parseDuration(final @NonNull String raw) {
+        if (raw.isEmpty())
+            throw new IllegalArgumentException("Empty duration");
+        if (raw.charAt(0) == 'P' || raw.charAt(0) == 'p' || raw.charAt(0) == '-')
+            return Duration.parse(raw);
+
+        var duration = Duration.ZERO;
+        var i = 0;
+        while (i < raw.length()) {
+            val amountStart = i;
+            while (i < raw.length() && Character.isDigit(raw.charAt(i)))
+                i++;
+            if (amountStart == i)
+                throw new IllegalArgumentException("Expected an amount at " + i + " in " + raw);
+            val amount = Long.parseLong(raw.substring(amountStart, i));
+
+            val unitStart = i;
+            while (i < raw.length() && Character.isLetter(raw.charAt(i)))
+                i++;
+            switch (raw.substring(unitStart, i).toLowerCase(Locale.ROOT)) {
+                case "":
+                    if (amountStart != 0 || i != raw.length())
+                        throw new IllegalArgumentException("Missing unit at " + i + " in " + raw);
+                    // Fall through, a single plain number is in seconds.
+                case "s":
+                    duration = duration.plusSeconds(amount);
+                    break;
+                case "ms":
+                    duration = duration.plusMillis(amount);
+                    break;
+                case "t":
+                    duration = duration.plusMillis(amount * 50);
+                    break;
+                case "m":
+                    duration = duration.plusMinutes(amount);
+                    break;
+                case "h":
+                    duration = duration.plusHours(amount);
+                    break;
+                case "d":
+                    duration = duration.plusDays(amount);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown unit " + raw.substring(unitStart, i) + " in " + raw);
+            }
+
+            while (i < raw.length() && Character.isWhitespace(raw.charAt(i)))
+                i++;
+        }
+        return duration;
+    }
+
+}
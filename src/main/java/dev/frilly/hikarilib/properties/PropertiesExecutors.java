@@ -0,0 +1,65 @@
+package dev.frilly.hikarilib.properties;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import lombok.val;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the background threads shared by every {@link PropertiesFile}.
+ */
+@UtilityClass
+final class PropertiesExecutors {
+
+    private final int IO_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private final AtomicInteger ioThreadCount = new AtomicInteger();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        val thread = new Thread(runnable, "HikariLibrary Properties Scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ThreadPoolExecutor io = newIoExecutor();
+
+    @NonNull
+    private ThreadPoolExecutor newIoExecutor() {
+        val executor = new ThreadPoolExecutor(IO_THREADS, IO_THREADS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            val thread = new Thread(runnable, "HikariLibrary Properties I/O #" + ioThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Idle I/O threads go away, nothing is kept around for files that are only loaded once.
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Gets the shared scheduler, used for debouncing and delayed work.
+     *
+     * @return the scheduler
+     */
+    @NonNull
+    ScheduledExecutorService scheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Gets the shared executor for blocking disk I/O, bounded to a few threads.
+     *
+     * @return the executor
+     */
+    @NonNull
+    Executor io() {
+        return io;
+    }
+
+}
@@ -1,23 +1,80 @@
 package dev.frilly.hikarilib.properties;
 
+import dev.frilly.hikarilib.collections.Attempt;
+import dev.frilly.hikarilib.collections.Failure;
 import dev.frilly.hikarilib.collections.Property;
+import dev.frilly.hikarilib.collections.Success;
+import lombok.Cleanup;
 import lombok.NonNull;
 import lombok.SneakyThrows;
 import lombok.val;
+import lombok.var;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Handles a .properties file.
  */
 public final class PropertiesFile {
 
+    private static final long DEFAULT_DEBOUNCE = 250;
+
     private final File file;
+    private final boolean mapped;
+    private final File snapshots;
+    private final boolean concurrent;
+    private final StringPool pool;
     private final Map<String, PropertyKey> values = new LinkedHashMap<>();
+    private MappedIndex index;
+    private RecordIndex records;
+    private NavigableMap<String, PropertyKey> sorted;
+    private final Map<String, ParsedValue> parsed = new HashMap<>();
+    private final List<Consumer<KeyChange>> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean watched = false;
+    private volatile Published published;
+
+    private final Object lock = new Object();
+    private final Object saveLock = new Object();
+    private boolean dirty = false;
+    // The size and modification time of the file when it was last read or written.
+    private long knownSize = -1;
+    private long knownModified = -1;
+    private long writeBehind = 0;
+    private ScheduledFuture<?> pendingFlush;
+
+    private PropertiesFile(@NonNull File file, boolean mapped, @Nullable File snapshots, boolean concurrent,
+                           @Nullable StringPool pool) {
+        this.file = file;
+        this.mapped = mapped;
+        this.snapshots = snapshots;
+        this.concurrent = concurrent;
+        this.pool = pool;
+        reload();
+    }
 
     /**
      * Constructs a new PropertiesFile.
@@ -25,8 +82,7 @@ public final class PropertiesFile {
      * @param file the file
      */
     public PropertiesFile(@NonNull File file) {
-        this.file = file;
-        reload();
+        this(file, false, null, false, null);
     }
 
     /**
@@ -38,6 +94,194 @@ public final class PropertiesFile {
         this(new File(name));
     }
 
+    /**
+     * Constructs a new read-mostly PropertiesFile, backed by a memory-mapped view of the file.
+     * <p>
+     * Loading only builds a compact offset index of the file, and a key is decoded the first time
+     * {@link #get(String)} or {@link #getRaw(String)} asks for it. The first change, range query or
+     * {@link #save()} decodes every key and turns this into a regular PropertiesFile until the next
+     * {@link #reload()}.
+     * <p>
+     * The mapping is only released once the index is garbage collected, so on some platforms the file
+     * cannot be replaced or deleted in the meantime.
+     *
+     * @param file the file
+     * @return the mapped file
+     */
+    @NonNull
+    public static PropertiesFile mapped(@NonNull File file) {
+        return new PropertiesFile(file, true, null, false, null);
+    }
+
+    /**
+     * Constructs a new PropertiesFile that keeps a compiled binary snapshot right next to the file.
+     * <p>
+     * See {@link #cached(File, File)}.
+     *
+     * @param file the file
+     * @return the cached file
+     */
+    @NonNull
+    public static PropertiesFile cached(@NonNull File file) {
+        return cached(file, file.getAbsoluteFile().getParentFile());
+    }
+
+    /**
+     * Constructs a new PropertiesFile that keeps a compiled binary snapshot in the provided directory.
+     * <p>
+     * After every parse of the text file, its keys are written as a compact binary snapshot, keyed by
+     * the size, modification time and content hash of the text. As long as the text file does not
+     * change, later loads read the snapshot with one bulk read instead of parsing the text again.
+     *
+     * @param file      the file
+     * @param directory the directory to keep snapshots in, created if needed
+     * @return the cached file
+     */
+    @NonNull
+    public static PropertiesFile cached(@NonNull File file, @NonNull File directory) {
+        return new PropertiesFile(file, false, directory, false, null);
+    }
+
+    /**
+     * Constructs a new PropertiesFile that is safe to read from any thread while another thread
+     * changes or reloads it.
+     * <p>
+     * Readers never lock, they look keys up in an immutable snapshot behind a volatile reference.
+     * Every {@link #addKey(PropertyKey)} and {@link #reload()} builds a new snapshot and publishes it,
+     * so a reader sees either every key of a change or none of it. This makes changes O(n), so it is
+     * meant for files that are read much more often than they are changed.
+     * <p>
+     * Typed values are cached along with the snapshot, so they are parsed again after every change, and
+     * range queries return views of the snapshot they were made from, which do not follow later changes.
+     *
+     * @param file the file
+     * @return the concurrent file
+     */
+    @NonNull
+    public static PropertiesFile concurrent(@NonNull File file) {
+        return new PropertiesFile(file, false, null, true, null);
+    }
+
+    /**
+     * Constructs a new PropertiesFile that takes every key, value and comment block from the provided
+     * pool, so that files sharing the pool share their identical strings as well.
+     *
+     * @param file the file
+     * @param pool the pool shared with other files
+     * @return the pooled file
+     */
+    @NonNull
+    public static PropertiesFile pooled(@NonNull File file, @NonNull StringPool pool) {
+        return new PropertiesFile(file, false, null, false, pool);
+    }
+
+    /**
+     * Constructs a new PropertiesFile on the shared I/O threads, so the calling thread never waits on
+     * the disk.
+     * <p>
+     * The future completes on an I/O thread. To get back to the main thread, continue it with an
+     * executor such as {@link dev.frilly.hikarilib.misc.Tasks#sync(org.bukkit.plugin.java.JavaPlugin)}.
+     *
+     * @param file the file
+     * @return the future completing with the loaded file
+     */
+    @NonNull
+    public static CompletableFuture<PropertiesFile> loadAsync(@NonNull File file) {
+        return CompletableFuture.supplyAsync(() -> new PropertiesFile(file), PropertiesExecutors.io());
+    }
+
+    /**
+     * Loads every .properties file directly inside the provided directory in parallel, using up to
+     * as many threads as there are available processors.
+     * <p>
+     * See {@link #loadAll(Path, int)}.
+     *
+     * @param directory the directory
+     * @return the loaded files, by path
+     */
+    @NonNull
+    public static Map<Path, Attempt<PropertiesFile>> loadAll(@NonNull Path directory) {
+        return loadAll(directory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Loads every .properties file directly inside the provided directory in parallel, on a fork-join
+     * pool bounded to the provided parallelism.
+     * <p>
+     * Every file gets its own attempt, so one broken file does not abort the others. The returned map
+     * is ordered by path, and is empty if the directory does not exist.
+     *
+     * @param directory   the directory
+     * @param parallelism the maximum amount of files parsed at the same time
+     * @return the loaded files, by path
+     */
+    @NonNull
+    public static Map<Path, Attempt<PropertiesFile>> loadAll(@NonNull Path directory, int parallelism) {
+        return loadAll(directory, parallelism, null);
+    }
+
+    /**
+     * Loads every .properties file directly inside the provided directory in parallel, on a fork-join
+     * pool bounded to the provided parallelism, sharing identical strings between all files through
+     * the string pool.
+     * <p>
+     * Every file gets its own attempt, so one broken file does not abort the others. The returned map
+     * is ordered by path, and is empty if the directory does not exist.
+     *
+     * @param directory   the directory
+     * @param parallelism the maximum amount of files parsed at the same time
+     * @param pool        the string pool, or null to not pool anything
+     * @return the loaded files, by path
+     */
+    @NonNull
+    @SneakyThrows
+    public static Map<Path, Attempt<PropertiesFile>> loadAll(@NonNull Path directory, int parallelism,
+                                                             @Nullable StringPool pool) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        if (!Files.isDirectory(directory))
+            return Collections.emptyMap();
+
+        @Cleanup val stream = Files.list(directory);
+        val paths = stream.filter(it -> it.getFileName().toString().endsWith(".properties"))
+                .filter(Files::isRegularFile)
+                .sorted()
+                .collect(Collectors.toList());
+
+        val tasks = new ArrayList<Callable<Attempt<PropertiesFile>>>(paths.size());
+        for (val path : paths) {
+            tasks.add(() -> {
+                try {
+                    return Success.of(new PropertiesFile(path.toFile(), false, null, false, pool));
+                } catch (Throwable throwable) {
+                    return Failure.of(throwable);
+                }
+            });
+        }
+
+        val executor = new ForkJoinPool(Math.min(parallelism, Math.max(1, paths.size())));
+        try {
+            val futures = executor.invokeAll(tasks);
+            val result = new LinkedHashMap<Path, Attempt<PropertiesFile>>();
+            for (var i = 0; i < paths.size(); i++)
+                result.put(paths.get(i), futures.get(i).get());
+            return result;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Decodes every key of the mapped index, if any, and drops the index.
+     */
+    private void materialize() {
+        if (index == null)
+            return;
+        val mappedIndex = index;
+        index = null;
+        mappedIndex.forEach(it -> values.put(it.getKey(), it));
+    }
+
     /**
      * Checks if the file actually exists on disk.
      *
@@ -74,7 +318,22 @@ public final class PropertiesFile {
      * @param key the key
      */
     public void addKey(final @NonNull PropertyKey key) {
-        values.put(key.key, key);
+        synchronized (lock) {
+            materialize();
+            val previous = values.put(key.getKey(), key);
+            parsed.remove(key.getKey());
+            if (sorted != null)
+                sorted.put(key.getKey(), key);
+            if (key.equals(previous))
+                return;
+
+            publish();
+            dirty = true;
+            if (writeBehind > 0 && pendingFlush == null)
+                pendingFlush = PropertiesExecutors.scheduler().schedule(this::flushBehind, writeBehind, TimeUnit.MILLISECONDS);
+            if (!listeners.isEmpty())
+                fire(KeyChange.of(previous == null ? KeyChange.Type.ADDED : KeyChange.Type.CHANGED, key.getKey(), previous, key));
+        }
     }
 
     /**
@@ -84,7 +343,32 @@ public final class PropertiesFile {
      * @return the key wrapped in a property if exists, an empty property otherwise.
      */
     public Property<PropertyKey> get(final @NonNull String key) {
-        return Property.of(values.get(key));
+        return Property.of(lookup(key));
+    }
+
+    /**
+     * Checks if a key exists.
+     *
+     * @param key the key
+     * @return true if it exists
+     */
+    public boolean contains(final @NonNull String key) {
+        return lookup(key) != null;
+    }
+
+    @Nullable
+    private PropertyKey lookup(final @NonNull String key) {
+        if (concurrent)
+            return published.values.get(key);
+        return index != null ? index.lookup(key) : values.get(key);
+    }
+
+    /**
+     * Publishes a copy of the current keys to lock-free readers, if this is a concurrent file.
+     */
+    private void publish() {
+        if (concurrent)
+            published = new Published(Collections.unmodifiableMap(new LinkedHashMap<>(values)));
     }
 
     /**
@@ -98,21 +382,620 @@ public final class PropertiesFile {
         return get(key).get();
     }
 
+    /**
+     * Gets the cached typed forms of a key's value.
+     *
+     * @param key the key
+     * @return the cached value, or null if the key does not exist
+     */
+    @Nullable
+    private ParsedValue parsed(final @NonNull String key) {
+        if (concurrent) {
+            // Cached along with the snapshot, so a change or reload starts over with a new cache.
+            val snapshot = published;
+            val cached = snapshot.parsed.get(key);
+            if (cached != null)
+                return cached;
+            val property = snapshot.values.get(key);
+            if (property == null)
+                return null;
+            val value = new ParsedValue(property.getValue());
+            val raced = snapshot.parsed.putIfAbsent(key, value);
+            return raced != null ? raced : value;
+        }
+
+        var value = parsed.get(key);
+        if (value == null) {
+            val property = lookup(key);
+            if (property == null)
+                return null;
+            value = new ParsedValue(property.getValue());
+            parsed.put(key, value);
+        }
+        return value;
+    }
+
+    @NonNull
+    private ParsedValue parsedRaw(final @NonNull String key) {
+        val value = parsed(key);
+        if (value == null)
+            throw new NullPointerException("Key " + key + " does not exist");
+        return value;
+    }
+
+    /**
+     * Gets a key's value as an int. The value is parsed once and cached until the key changes or the
+     * file is reloaded.
+     *
+     * @param key the key
+     * @return the value
+     * @throws NullPointerException  if the key does not exist
+     * @throws NumberFormatException if the value is not an int
+     */
+    public int getInt(final @NonNull String key) {
+        return parsedRaw(key).getInt();
+    }
+
+    /**
+     * Gets a key's value as an int. The value is parsed once and cached until the key changes or the
+     * file is reloaded.
+     *
+     * @param key the key
+     * @param def the value to return if the key does not exist or is not an int
+     * @return the value
+     */
+    public int getInt(final @NonNull String key, final int def) {
+        val value = parsed(key);
+        return value == null ? def : value.getInt(def);
+    }
+
+    /**
+     * Gets a key's value as a long. The value is parsed once and cached until the key changes or the
+     * file is reloaded.
+     *
+     * @param key the key
+     * @return the value
+     * @throws NullPointerException  if the key does not exist
+     * @throws NumberFormatException if the value is not a long
+     */
+    public long getLong(final @NonNull String key) {
+        return parsedRaw(key).getLong();
+    }
+
+    /**
+     * Gets a key's value as a long. The value is parsed once and cached until the key changes or the
+     * file is reloaded.
+     *
+     * @param key the key
+     * @param def the value to return if the key does not exist or is not a long
+     * @return the value
+     */
+    public long getLong(final @NonNull String key, final long def) {
+        val value = parsed(key);
+        return value == null ? def : value.getLong(def);
+    }
+
+    /**
+     * Gets a key's value as a double. The value is parsed once and cached until the key changes or the
+     * file is reloaded.
+     *
+     * @param key the key
+     * @return the value
+     * @throws NullPointerException  if the key does not exist
+     * @throws NumberFormatException if the value is not a double
+     */
+    public double getDouble(final @NonNull String key) {
+        return parsedRaw(key).getDouble();
+    }
+
+    /**
+     * Gets a key's value as a double. The value is parsed once and cached until the key changes or the
+     * file is reloaded.
+     *
+     * @param key the key
+     * @param def the value to return if the key does not exist or is not a double
+     * @return the value
+     */
+    public double getDouble(final @NonNull String key, final double def) {
+        val value = parsed(key);
+        return value == null ? def : value.getDouble(def);
+    }
+
+    /**
+     * Gets a key's value as a boolean, following {@link Boolean#parseBoolean(String)}. The value is
+     * parsed once and cached until the key changes or the file is reloaded.
+     *
+     * @param key the key
+     * @return the value
+     * @throws NullPointerException if the key does not exist
+     */
+    public boolean getBoolean(final @NonNull String key) {
+        return parsedRaw(key).getBoolean();
+    }
+
+    /**
+     * Gets a key's value as a boolean, following {@link Boolean#parseBoolean(String)}. The value is
+     * parsed once and cached until the key changes or the file is reloaded.
+     *
+     * @param key the key
+     * @param def the value to return if the key does not exist
+     * @return the value
+     */
+    public boolean getBoolean(final @NonNull String key, final boolean def) {
+        val value = parsed(key);
+        return value == null ? def : value.getBoolean();
+    }
+
+    /**
+     * Gets a key's value as a list, split on commas and line breaks, with every element trimmed and
+     * empty elements dropped. The list is built once and cached until the key changes or the file
+     * is reloaded.
+     *
+     * @param key the key
+     * @return the read-only list
+     * @throws NullPointerException if the key does not exist
+     */
+    @NonNull
+    public List<String> getList(final @NonNull String key) {
+        return parsedRaw(key).getList();
+    }
+
+    /**
+     * Gets a key's value as a list, split on commas and line breaks, with every element trimmed and
+     * empty elements dropped. The list is built once and cached until the key changes or the file
+     * is reloaded.
+     *
+     * @param key the key
+     * @param def the list to return if the key does not exist
+     * @return the read-only list
+     */
+    @NonNull
+    public List<String> getList(final @NonNull String key, final @NonNull List<String> def) {
+        val value = parsed(key);
+        return value == null ? def : value.getList();
+    }
+
+    /**
+     * Gets a key's value as a duration, such as {@code 1h30m}, {@code 250ms}, {@code 20t} (ticks),
+     * {@code PT5S}, or a plain number of seconds. The value is parsed once and cached until the key
+     * changes or the file is reloaded.
+     *
+     * @param key the key
+     * @return the duration
+     * @throws NullPointerException     if the key does not exist
+     * @throws IllegalArgumentException if the value is not a duration
+     */
+    @NonNull
+    public Duration getDuration(final @NonNull String key) {
+        return parsedRaw(key).getDuration();
+    }
+
+    /**
+     * Gets a key's value as a duration, such as {@code 1h30m}, {@code 250ms}, {@code 20t} (ticks),
+     * {@code PT5S}, or a plain number of seconds. The value is parsed once and cached until the key
+     * changes or the file is reloaded.
+     *
+     * @param key the key
+     * @param def the duration to return if the key does not exist or is not a duration
+     * @return the duration
+     */
+    @NonNull
+    public Duration getDuration(final @NonNull String key, final @NonNull Duration def) {
+        val value = parsed(key);
+        return value == null ? def : value.getDuration(def);
+    }
+
+    /**
+     * Gets the sorted key index, building it on first use. Once built, it is kept in step with
+     * {@link #addKey(PropertyKey)} until the next {@link #reload()}.
+     *
+     * @return the sorted index
+     */
+    @NonNull
+    private NavigableMap<String, PropertyKey> sorted() {
+        if (concurrent)
+            return published.sorted();
+        if (sorted == null) {
+            materialize();
+            sorted = new TreeMap<>(values);
+        }
+        return sorted;
+    }
+
+    /**
+     * Gets the smallest string that is greater than every string starting with the provided prefix.
+     *
+     * @param prefix the prefix
+     * @return the upper bound, or null if there is none
+     */
+    @Nullable
+    private static String prefixEnd(final @NonNull String prefix) {
+        var end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == Character.MAX_VALUE)
+            end--;
+        if (end == 0)
+            return null;
+        return prefix.substring(0, end - 1) + (char) (prefix.charAt(end - 1) + 1);
+    }
+
+    @NonNull
+    private NavigableMap<String, PropertyKey> slice(final @NonNull String from, final @Nullable String to) {
+        return to == null ? sorted().tailMap(from, true) : sorted().subMap(from, true, to, false);
+    }
+
+    /**
+     * Gets every key starting with the provided prefix, in sorted order.
+     * <p>
+     * Like {@link #subtree(String)} and {@link #range(String, String)}, this takes O(log n) to find
+     * the range, and the returned view stays in step with added keys until the next {@link #reload()}.
+     *
+     * @param prefix the prefix
+     * @return a read-only view of the matching keys
+     */
+    @NonNull
+    public SortedSet<String> keysWithPrefix(final @NonNull String prefix) {
+        return Collections.unmodifiableSortedSet(slice(prefix, prefixEnd(prefix)).navigableKeySet());
+    }
+
+    /**
+     * Gets every key under the provided dotted section, in sorted order.
+     * <p>
+     * For example, the section {@code messages.error} contains {@code messages.error.noperm}, but not
+     * {@code messages.error} itself nor {@code messages.errors.noperm}.
+     *
+     * @param section the section
+     * @return a read-only view of the keys under the section
+     */
+    @NonNull
+    public SortedMap<String, PropertyKey> subtree(final @NonNull String section) {
+        val prefix = section + ".";
+        return Collections.unmodifiableSortedMap(slice(prefix, prefixEnd(prefix)));
+    }
+
+    /**
+     * Gets every key between the provided bounds, in sorted order.
+     *
+     * @param from the lowest key, inclusive
+     * @param to   the highest key, exclusive, or null for no upper bound
+     * @return a read-only view of the keys in the range
+     */
+    @NonNull
+    public SortedMap<String, PropertyKey> range(final @NonNull String from, final @Nullable String to) {
+        return Collections.unmodifiableSortedMap(slice(from, to));
+    }
+
     /**
      * Reloads from disk and ignores everything that was changed.
+     * <p>
+     * If there are change listeners, the old and new keys are compared and only the differences are
+     * fired.
      */
     public void reload() {
-        values.clear();
-        val list = PropertiesReader.read(file);
-        list.forEach(this::addKey);
+        synchronized (lock) {
+            val old = listeners.isEmpty() ? null : snapshot();
+            values.clear();
+            index = null;
+            records = null;
+            sorted = null;
+            parsed.clear();
+            dirty = false;
+            knownSize = file.length();
+            knownModified = file.lastModified();
+            if (mapped)
+                index = MappedIndex.map(file);
+            else if (snapshots != null)
+                PropertiesSnapshot.read(file, snapshots).forEach(it -> values.put(it.getKey(), it));
+            else if (file.exists()) {
+                val recording = new RecordIndex(file);
+                PropertiesReader.read(file, pool, (key, start, end) -> {
+                    values.put(key.getKey(), key);
+                    recording.add(key, start, end);
+                });
+                // A key defined more than once has several records, and the file is then written in full.
+                if (recording.size() == values.size())
+                    records = recording;
+            }
+
+            publish();
+            if (old != null)
+                fireDifferences(old);
+        }
+    }
+
+    /**
+     * Reloads from disk, unless the file has the same size and modification time as when it was last
+     * read or written, or there are unsaved changes. Watched files reload through this, so that their
+     * own saves don't reload them.
+     */
+    void reloadIfChanged() {
+        synchronized (saveLock) {
+            synchronized (lock) {
+                if (dirty || (file.length() == knownSize && file.lastModified() == knownModified))
+                    return;
+                reload();
+            }
+        }
+    }
+
+    /**
+     * Reloads from disk on the shared I/O threads, like {@link #reload()}.
+     * <p>
+     * Only files made with {@link #concurrent(File)} can be reloaded this way, since the other ones can't
+     * be read while an I/O thread reloads them. The future completes on an I/O thread, after the change
+     * listeners were called.
+     *
+     * @return the future completing once reloaded
+     * @throws IllegalStateException if this is not a concurrent file
+     */
+    @NonNull
+    public CompletableFuture<Void> reloadAsync() {
+        if (!concurrent)
+            throw new IllegalStateException("Only concurrent files can be reloaded asynchronously");
+        return CompletableFuture.runAsync(this::reload, PropertiesExecutors.io());
+    }
+
+    /**
+     * Copies every key, in file order.
+     *
+     * @return the copy
+     */
+    @NonNull
+    Collection<PropertyKey> keys() {
+        synchronized (lock) {
+            return snapshot().values();
+        }
+    }
+
+    /**
+     * Copies every key, in file order, without leaving the mapped mode.
+     *
+     * @return the copy
+     */
+    @NonNull
+    private Map<String, PropertyKey> snapshot() {
+        if (index == null)
+            return new LinkedHashMap<>(values);
+        val copy = new LinkedHashMap<String, PropertyKey>();
+        index.forEach(it -> copy.put(it.getKey(), it));
+        return copy;
+    }
+
+    private void fireDifferences(final @NonNull Map<String, PropertyKey> old) {
+        for (val key : snapshot().values()) {
+            val previous = old.remove(key.getKey());
+            if (previous == null)
+                fire(KeyChange.of(KeyChange.Type.ADDED, key.getKey(), null, key));
+            else if (!previous.equals(key))
+                fire(KeyChange.of(KeyChange.Type.CHANGED, key.getKey(), previous, key));
+        }
+        for (val key : old.values())
+            fire(KeyChange.of(KeyChange.Type.REMOVED, key.getKey(), key, null));
+    }
+
+    private void fire(final @NonNull KeyChange change) {
+        listeners.forEach(it -> it.accept(change));
+    }
+
+    /**
+     * Adds a listener that is called for every key that is added, changed or removed, either through
+     * {@link #addKey(PropertyKey)} or by a {@link #reload()}.
+     * <p>
+     * Listeners are called on the thread making the change. For watched files, this is a background
+     * thread.
+     *
+     * @param listener the listener
+     */
+    public void addListener(final @NonNull Consumer<KeyChange> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param listener the listener
+     */
+    public void removeListener(final @NonNull Consumer<KeyChange> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts watching the file on disk, reloading it once a burst of changes settles for 250ms.
+     *
+     * @throws IllegalStateException if this is not a concurrent file
+     */
+    public void watch() {
+        watch(DEFAULT_DEBOUNCE);
+    }
+
+    /**
+     * Starts watching the file on disk. All watched files share a single watching thread, and
+     * reloads happen on a shared background thread, firing only the changed keys to the listeners.
+     * <p>
+     * Only files made with {@link #concurrent(File)} can be watched, since the other ones can't be read
+     * while the background thread reloads them.
+     * <p>
+     * Saves of this file don't reload it. Changes made on disk while there are unsaved changes are
+     * ignored as well, and overwritten by the next save.
+     *
+     * @param debounce the quiet time in milliseconds to wait for before reloading
+     * @throws IllegalStateException if this is not a concurrent file
+     */
+    public void watch(final long debounce) {
+        if (!concurrent)
+            throw new IllegalStateException("Only concurrent files can be watched");
+        synchronized (lock) {
+            if (watched)
+                return;
+            PropertiesWatcher.register(this, file.toPath(), debounce);
+            watched = true;
+        }
+    }
+
+    /**
+     * Stops watching the file on disk.
+     */
+    public void unwatch() {
+        synchronized (lock) {
+            if (!watched)
+                return;
+            PropertiesWatcher.unregister(this);
+            watched = false;
+        }
+    }
+
+    /**
+     * Checks if the file is being watched for changes on disk.
+     *
+     * @return true if watched
+     */
+    public boolean isWatched() {
+        return watched;
     }
 
     /**
      * Saves all data to the disk, and ignores everything that was changed
      * directly to the file.
+     * <p>
+     * Nothing is written if no key changed since the last load or save and the file still exists.
+     * <p>
+     * If the file was loaded from its text and has not changed on disk since, only the changed records
+     * are rendered. The untouched ranges are copied into a temporary file along with the changed
+     * records, and new keys are added after the last record.
+     * <p>
+     * Otherwise, every key is written to a temporary file. Either way, the temporary file is forced to
+     * disk and then moved over the original, so a crash leaves either the old or the new file behind.
+     * The move is atomic on file systems that support it, which covers most local ones.
      */
     public void save() {
-        PropertiesWriter.write(file, new ArrayList<>(values.values()));
+        synchronized (saveLock) {
+            final List<PropertyKey> keys;
+            final RecordIndex patchable;
+            synchronized (lock) {
+                if (pendingFlush != null) {
+                    pendingFlush.cancel(false);
+                    pendingFlush = null;
+                }
+                if (!dirty && file.exists())
+                    return;
+                materialize();
+                keys = new ArrayList<>(values.values());
+                patchable = records;
+                dirty = false;
+            }
+
+            try {
+                val patched = patchable == null ? null : patchable.patch(file, keys);
+                if (patched == null)
+                    PropertiesWriter.writeAtomically(file, keys);
+                synchronized (lock) {
+                    // A full write has no offsets, so patching starts again after the next reload.
+                    if (records == patchable)
+                        records = patched;
+                    knownSize = file.length();
+                    knownModified = file.lastModified();
+                }
+            } catch (Throwable throwable) {
+                synchronized (lock) {
+                    dirty = true;
+                }
+                throw throwable;
+            }
+        }
+    }
+
+    /**
+     * Saves all data to the disk on the shared I/O threads, like {@link #save()}.
+     * <p>
+     * The keys are written as they are when the save runs, so changes made before it starts are
+     * included. The future completes on an I/O thread.
+     *
+     * @return the future completing once saved
+     */
+    @NonNull
+    public CompletableFuture<Void> saveAsync() {
+        // Decode a mapped file here, as readers of it don't lock and mustn't see the I/O thread do so.
+        synchronized (lock) {
+            materialize();
+        }
+        return CompletableFuture.runAsync(this::save, PropertiesExecutors.io());
+    }
+
+    /**
+     * Checks if any key changed since the last load or save.
+     *
+     * @return true if there are unsaved changes
+     */
+    public boolean isDirty() {
+        synchronized (lock) {
+            return dirty;
+        }
+    }
+
+    /**
+     * Enables or disables write-behind saving.
+     * <p>
+     * While enabled, every change schedules a save on a shared background thread after the provided
+     * delay, so a burst of {@link #addKey(PropertyKey)} calls is coalesced into a single write and
+     * the calling thread never waits on disk I/O.
+     *
+     * @param delay the delay in milliseconds, or 0 to disable write-behind saving
+     */
+    public void writeBehind(final long delay) {
+        synchronized (lock) {
+            writeBehind = Math.max(0, delay);
+        }
+        if (delay <= 0)
+            flush();
+    }
+
+    /**
+     * Writes any pending write-behind changes right away, on the calling thread.
+     */
+    public void flush() {
+        synchronized (lock) {
+            if (pendingFlush == null)
+                return;
+        }
+        save();
+    }
+
+    private void flushBehind() {
+        synchronized (lock) {
+            pendingFlush = null;
+        }
+        try {
+            save();
+        } catch (Exception exception) {
+            // Don't let the scheduler swallow it.
+            val thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, exception);
+        }
+    }
+
+    /**
+     * An immutable snapshot of the keys, shared with lock-free readers.
+     */
+    private static final class Published {
+
+        private final Map<String, PropertyKey> values;
+        private final ConcurrentHashMap<String, ParsedValue> parsed = new ConcurrentHashMap<>();
+        private volatile NavigableMap<String, PropertyKey> sorted;
+
+        private Published(final @NonNull Map<String, PropertyKey> values) {
+            this.values = values;
+        }
+
+        @NonNull
+        private NavigableMap<String, PropertyKey> sorted() {
+            // Racing readers may both sort it, which is harmless since the keys never change.
+            var result = sorted;
+            if (result == null) {
+                result = Collections.unmodifiableNavigableMap(new TreeMap<>(values));
+                sorted = result;
+            }
+            return result;
+        }
+
     }
 
 }
@@ -0,0 +1,340 @@
+package dev.frilly.hikarilib.properties;
+
+import lombok.NonNull;
+import lombok.val;
+import lombok.var;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A single-pass, character-level state machine for .properties content.
+ * <p>
+ * Characters are pushed in through {@link #feed(char[], int, int)} in chunks of any size, and every
+ * completed key is handed to the sink as soon as its last line ends. A single {@link StringBuilder}
+ * is reused for comments, keys and values, so parsing never needs the whole file in memory.
+ * <p>
+ * The parser also counts the UTF-8 bytes it was fed, so every key can be reported along with the byte
+ * range of its record in the file, from its first comment line to the line break ending its value.
+ */
+final class PropertiesParser {
+
+    private static final int LINE_START = 0;
+    private static final int COMMENT = 1;
+    private static final int KEY = 2;
+    private static final int KEY_ESCAPE = 3;
+    private static final int KEY_CONTINUATION = 4;
+    private static final int SEPARATOR = 5;
+    private static final int VALUE_START = 6;
+    private static final int VALUE = 7;
+    private static final int VALUE_ESCAPE = 8;
+    private static final int VALUE_CONTINUATION = 9;
+
+    private final RecordSink sink;
+    private final StringPool pool;
+    private final StringBuilder buffer = new StringBuilder(128);
+
+    private List<String> comments = new ArrayList<>();
+    private String key;
+    private int state = LINE_START;
+    private boolean skipLineFeed = false;
+
+    private long position = 0;
+    private long lineStart = 0;
+    private long recordStart = -1;
+
+    // The last key is only handed out once we know whether its \r is followed by a \n.
+    private PropertyKey pending;
+    private long pendingStart;
+    private long pendingEnd;
+
+    /**
+     * Constructs a new parser.
+     *
+     * @param sink the consumer receiving every parsed key, in file order
+     */
+    PropertiesParser(final @NonNull Consumer<PropertyKey> sink) {
+        this(sink, null);
+    }
+
+    /**
+     * Constructs a new parser that takes every key, value and comment block from a pool.
+     *
+     * @param sink the consumer receiving every parsed key, in file order
+     * @param pool the pool, or null to not pool anything
+     */
+    PropertiesParser(final @NonNull Consumer<PropertyKey> sink, final @Nullable StringPool pool) {
+        this((key, start, end) -> sink.accept(key), pool);
+    }
+
+    /**
+     * Constructs a new parser that reports the byte range of every record along with its key.
+     *
+     * @param sink the sink receiving every parsed key and its record, in file order
+     * @param pool the pool, or null to not pool anything
+     */
+    PropertiesParser(final @NonNull RecordSink sink, final @Nullable StringPool pool) {
+        this.sink = sink;
+        this.pool = pool;
+    }
+
+    /**
+     * Counts the bytes a character takes in UTF-8. Both halves of a surrogate pair take two bytes.
+     */
+    private static int utf8Length(final char c) {
+        if (c < 0x80)
+            return 1;
+        if (c < 0x800 || Character.isSurrogate(c))
+            return 2;
+        return 3;
+    }
+
+    private static boolean isLineEnd(final char c) {
+        return c == '\n' || c == '\r';
+    }
+
+    private static boolean isMargin(final char c) {
+        return c == ' ' || c == '\t' || c == '\f' || c == '\u000B';
+    }
+
+    private void finishKey() {
+        key = buffer.toString();
+        buffer.setLength(0);
+    }
+
+    private void emit() {
+        if (pool == null) {
+            pending = new PropertyKey(key, buffer.toString(), comments);
+            comments = new ArrayList<>();
+        } else {
+            // The pool copies the comments, so the list can be reused.
+            pending = new PropertyKey(pool.intern(key), pool.intern(buffer.toString()), pool.comments(comments));
+            comments.clear();
+        }
+        pendingStart = recordStart;
+        pendingEnd = position;
+        recordStart = -1;
+        buffer.setLength(0);
+        key = null;
+        state = LINE_START;
+    }
+
+    private void flush() {
+        if (pending == null)
+            return;
+        val record = pending;
+        pending = null;
+        sink.accept(record, pendingStart, pendingEnd);
+    }
+
+    /**
+     * Feeds a chunk of characters into the parser.
+     *
+     * @param chars  the characters
+     * @param offset the first character to read
+     * @param length the amount of characters to read
+     */
+    void feed(final @NonNull char[] chars, final int offset, final int length) {
+        val end = offset + length;
+        for (var i = offset; i < end; i++) {
+            val c = chars[i];
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (c == '\n') {
+                    position++;
+                    lineStart = position;
+                    if (pending != null)
+                        pendingEnd = position;
+                    flush();
+                    continue;
+                }
+            }
+            flush();
+
+            position += utf8Length(c);
+            if (c == '\r')
+                skipLineFeed = true;
+            accept(c);
+            if (isLineEnd(c))
+                lineStart = position;
+            if (!skipLineFeed)
+                flush();
+        }
+    }
+
+    private void accept(final char c) {
+        switch (state) {
+            case LINE_START:
+                if (isLineEnd(c) || isMargin(c))
+                    return;
+                if (recordStart < 0)
+                    recordStart = lineStart;
+                buffer.setLength(0);
+                if (c == '#' || c == '!') {
+                    buffer.append(c);
+                    state = COMMENT;
+                } else if (c == '=' || c == ':') {
+                    finishKey();
+                    state = VALUE_START;
+                } else if (c == '\\') {
+                    state = KEY_ESCAPE;
+                } else {
+                    buffer.append(c);
+                    state = KEY;
+                }
+                return;
+
+            case COMMENT:
+                if (isLineEnd(c)) {
+                    comments.add(buffer.toString());
+                    buffer.setLength(0);
+                    state = LINE_START;
+                } else {
+                    buffer.append(c);
+                }
+                return;
+
+            case KEY_CONTINUATION:
+                if (isMargin(c))
+                    return;
+                state = KEY;
+                // Fall through, the first non-margin character belongs to the key.
+            case KEY:
+                if (c == '\\') {
+                    state = KEY_ESCAPE;
+                } else if (c == '=' || c == ':') {
+                    finishKey();
+                    state = VALUE_START;
+                } else if (c == ' ') {
+                    finishKey();
+                    state = SEPARATOR;
+                } else if (isLineEnd(c)) {
+                    finishKey();
+                    emit();
+                } else {
+                    buffer.append(c);
+                }
+                return;
+
+            case KEY_ESCAPE:
+                if (isLineEnd(c)) {
+                    state = KEY_CONTINUATION;
+                    return;
+                }
+                // Only these are escapes in keys, anything else keeps its backslash.
+                if (c != '\\' && c != ':' && c != '=' && c != ' ')
+                    buffer.append('\\');
+                buffer.append(c);
+                state = KEY;
+                return;
+
+            case SEPARATOR:
+                // A space ended the key, it may still be followed by the real delimiter.
+                if (c == '=' || c == ':') {
+                    state = VALUE_START;
+                } else if (c == ' ') {
+                    state = VALUE;
+                } else if (isLineEnd(c)) {
+                    emit();
+                } else {
+                    state = VALUE;
+                    accept(c);
+                }
+                return;
+
+            case VALUE_START:
+                state = VALUE;
+                // Only a single space after the delimiter is dropped.
+                if (c != ' ')
+                    accept(c);
+                return;
+
+            case VALUE_CONTINUATION:
+                if (isMargin(c))
+                    return;
+                state = VALUE;
+                // Fall through, the first non-margin character belongs to the value.
+            case VALUE:
+                if (c == '\\')
+                    state = VALUE_ESCAPE;
+                else if (isLineEnd(c))
+                    emit();
+                else
+                    buffer.append(c);
+                return;
+
+            case VALUE_ESCAPE:
+                if (isLineEnd(c)) {
+                    // Odd trailing backslashes, the value continues on the next line.
+                    buffer.append('\n');
+                    state = VALUE_CONTINUATION;
+                    return;
+                }
+                // Only double backslashes are escapes in values, anything else is kept as is.
+                buffer.append('\\');
+                if (c != '\\')
+                    buffer.append(c);
+                state = VALUE;
+                return;
+
+            default:
+                throw new IllegalStateException("Unknown parser state " + state);
+        }
+    }
+
+    /**
+     * Signals the end of the input, emitting the last key if the content did not end with a line break.
+     * <p>
+     * Comments that are not followed by any key are dropped.
+     */
+    void finish() {
+        flush();
+        switch (state) {
+            case KEY_ESCAPE:
+                buffer.append('\\');
+                // Fall through.
+            case KEY:
+            case KEY_CONTINUATION:
+                finishKey();
+                emit();
+                break;
+            case SEPARATOR:
+            case VALUE_START:
+            case VALUE:
+            case VALUE_ESCAPE:
+            case VALUE_CONTINUATION:
+                emit();
+                break;
+            default:
+                break;
+        }
+        flush();
+        buffer.setLength(0);
+        comments = new ArrayList<>();
+        state = LINE_START;
+        skipLineFeed = false;
+        position = 0;
+        lineStart = 0;
+        recordStart = -1;
+    }
+
+    /**
+     * Receives every parsed key along with the byte range of its record.
+     */
+    @FunctionalInterface
+    interface RecordSink {
+
+        /**
+         * Accepts a parsed key.
+         *
+         * @param key   the key
+         * @param start the offset of the first byte of the record, including its comments
+         * @param end   the offset right after the line break ending the record
+         */
+        void accept(@NonNull PropertyKey key, long start, long end);
+
+    }
+
+}
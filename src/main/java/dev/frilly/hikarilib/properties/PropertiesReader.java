@@ -1,180 +1,194 @@
 package dev.frilly.hikarilib.properties;
 
-import com.google.common.collect.Sets;
-import dev.frilly.hikarilib.collections.Attempt;
-import dev.frilly.hikarilib.collections.MutableProperty;
-import dev.frilly.hikarilib.misc.Strings;
+import lombok.Cleanup;
 import lombok.NonNull;
 import lombok.SneakyThrows;
-import lombok.experimental.ExtensionMethod;
 import lombok.experimental.UtilityClass;
 import lombok.val;
 import lombok.var;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
-import java.util.StringJoiner;
+import java.util.function.Consumer;
 
 /**
  * Reads in .properties file.
+ * <p>
+ * All reads go through a single-pass streaming parser, so keys can either be collected into a list,
+ * or pushed one by one to a callback without ever holding the whole file in memory.
  */
-@ExtensionMethod({Strings.class})
 @UtilityClass
 public final class PropertiesReader {
 
-    private final Set<String> commentStarters = Sets.newHashSet("!", "#");
+    private final int BUFFER_SIZE = 8192;
 
     /**
-     * Checks if the provided line is a comment, by checking if it starts with any of the comment starters.
+     * Checks whether the provided file can be read as a .properties file.
      *
-     * @param line the line to check
-     * @return true if it is a comment
+     * @param file the file to check
+     * @return true if it exists and has the .properties extension
      */
-    private boolean isComment(final @NonNull String line) {
-        return commentStarters.stream().anyMatch(line::startsWith);
+    private boolean isReadable(final @NonNull File file) {
+        return file.exists() && file.getName().endsWith(".properties");
     }
 
-    private String sanitizeKey(final @NonNull String key) {
-        return key.replace("\\\\", "\\").replace("\\:", ":")
-                .replace("\\=", "=").replace("\\ ", " ");
+    /**
+     * Reads in a list of properties key from the provided file.
+     * <p>
+     * If the file does not exist, or it is not a .properties file, this returns an empty list.
+     *
+     * @param file the file to read from
+     * @return the list of keys
+     */
+    @NonNull
+    public List<PropertyKey> read(final @NonNull File file) {
+        val keys = new ArrayList<PropertyKey>();
+        read(file, keys::add);
+        return keys;
     }
 
     /**
-     * It has to be guaranteed that the provided line is NOT a comment.
+     * Reads the provided file, pushing every key to the callback as soon as it is parsed.
+     * <p>
+     * If the file does not exist, or it is not a .properties file, the callback is never called.
      *
-     * @param line the line to check
-     * @return true if it has an odd number of trailing backslashes.
+     * @param file     the file to read from
+     * @param callback the callback receiving every key, in file order
      */
-    private boolean hasOddTrailingBackslashes(final @NonNull String line) {
-        var backslashCount = 0;
-        for (var i = line.length() - 1; i >= 0; i--) {
-            if (line.charAt(i) == '\\')
-                backslashCount++;
-            else
-                break;
-        }
-        return backslashCount % 2 == 1;
+    public void read(final @NonNull File file, final @NonNull Consumer<PropertyKey> callback) {
+        read(file, null, callback);
     }
 
     /**
-     * Looks for the first considered delimiter in the provided line.
+     * Reads in a list of properties key from the provided file, taking every key, value and comment
+     * block from the pool.
      * <p>
-     * A delimiter can be a colon, an equals sign, or simply a space.
+     * If the file does not exist, or it is not a .properties file, this returns an empty list.
      *
-     * @param line the line to check
-     * @return the index of the first delimiter, or -1 if none was found
+     * @param file the file to read from
+     * @param pool the pool shared with other files
+     * @return the list of keys
      */
-    private int findFirstDelimiter(final @NonNull String line) {
-        val delimiters = Sets.newHashSet('=', ':');
-        var isEscaped = false;
-
-        for (var i = 0; i < line.length(); i++) {
-            switch (line.charAt(i)) {
-                case ' ':
-                    if (isEscaped) {
-                        isEscaped = false;
-                        continue;
-                    }
-                    // Found the delimiter.
-                    if (i + 1 < line.length() && delimiters.contains(line.charAt(i + 1)))
-                        return i + 1;
-                    if (i + 1 >= line.length() || !delimiters.contains(line.charAt(i + 1)))
-                        return i; // The delimiter is now the space.
-                    break;
-                case ':':
-                case '=':
-                    if (!isEscaped)
-                        return i;
-                    else isEscaped = false;
-                    break;
-                case '\\':
-                    isEscaped = !isEscaped;
-                    continue;
-            }
-        }
-        return -1;
+    @NonNull
+    public List<PropertyKey> read(final @NonNull File file, final @NonNull StringPool pool) {
+        val keys = new ArrayList<PropertyKey>();
+        read(file, pool, keys::add);
+        return keys;
     }
 
-    private void handleSingleLine(final @NonNull String line, final @NonNull MutableProperty<String> key,
-                                  final @NonNull MutableProperty<String> value) {
-        val firstDelim = findFirstDelimiter(line);
-        key.set(sanitizeKey(line.substring(0, firstDelim).removeSuffix(" ")));
-        value.set(line.substring(firstDelim + 1).replace("\\\\", "\\").removePrefix(" "));
+    /**
+     * Reads the provided file, pushing every key to the callback as soon as it is parsed, and taking
+     * every key, value and comment block from the pool.
+     * <p>
+     * If the file does not exist, or it is not a .properties file, the callback is never called.
+     *
+     * @param file     the file to read from
+     * @param pool     the pool shared with other files, or null to not pool anything
+     * @param callback the callback receiving every key, in file order
+     */
+    public void read(final @NonNull File file, final @Nullable StringPool pool,
+                     final @NonNull Consumer<PropertyKey> callback) {
+        read(file, new PropertiesParser(callback, pool));
     }
 
     /**
-     * Reads in a list of properties key from the provided file.
-     * <p>
-     * This always returns an instance of {@link Attempt}.
-     * <p>
-     * If the file does not exist, or it is not a .properties file, it will yield a "successful" attempt
-     * with an empty list as the value.
-     * <p>
-     * If there are errors and problems in reading and parsing the file, it will yield a "failed" attempt.
+     * Reads the provided file, pushing every key to the sink along with the byte range of its record.
      *
      * @param file the file to read from
+     * @param pool the pool shared with other files, or null to not pool anything
+     * @param sink the sink receiving every key and its record, in file order
+     */
+    void read(final @NonNull File file, final @Nullable StringPool pool, final @NonNull PropertiesParser.RecordSink sink) {
+        read(file, new PropertiesParser(sink, pool));
+    }
+
+    @SneakyThrows
+    private void read(final @NonNull File file, final @NonNull PropertiesParser parser) {
+        if (!isReadable(file))
+            return;
+
+        // Read in UTF-8 because I want other languages too.
+        @Cleanup val reader = new InputStreamReader(Files.newInputStream(file.toPath()),
+                StandardCharsets.UTF_8.newDecoder());
+        read(reader, parser);
+    }
+
+    /**
+     * Reads in a list of properties key from the provided reader. The reader is not closed.
+     *
+     * @param reader the reader to read from
      * @return the list of keys
      */
     @NonNull
-    @SneakyThrows
-    public List<PropertyKey> read(final @NonNull File file) {
+    public List<PropertyKey> read(final @NonNull Reader reader) {
         val keys = new ArrayList<PropertyKey>();
-        if (!file.exists() || !file.getName().endsWith(".properties"))
-            return keys;
+        read(reader, keys::add);
+        return keys;
+    }
 
-        // Read in UTF-8 because I want other languages too.
-        val lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
-        var i = 0;
-
-        while (i < lines.size()) {
-            if (lines.get(i).isEmpty()) {
-                i++;
-                continue;
-            }
-
-            val comments = new ArrayList<String>();
-            val key = MutableProperty.of("");
-            val value = MutableProperty.of("");
-
-            // Collect all comments at once.
-            while (isComment(lines.get(i))) {
-                comments.add(lines.get(i));
-                i++;
-            }
-
-            // Next line is a key-value pair. If there are an even number of \, it's a single line value.
-            if (!hasOddTrailingBackslashes(lines.get(i))) {
-                handleSingleLine(lines.get(i), key, value);
-                keys.add(new PropertyKey(key.get(), value.get(), comments));
-                i++;
-                continue;
-            }
-
-            // Otherwise, it's a multi-line value.
-            val firstDelim = findFirstDelimiter(lines.get(i));
-            val joiner = new StringJoiner("\n");
-            key.set(sanitizeKey(lines.get(i).substring(0, firstDelim).removeSuffix(" ")));
-            joiner.add(lines.get(i).substring(firstDelim + 1).replace("\\\\", "\\").removeSuffix("\\").removePrefix(" "));
-
-            // Handle next lines
-            i++;
-            while (hasOddTrailingBackslashes(lines.get(i)))
-                // Remove margins.
-                joiner.add(lines.get(i++).replace("\\\\", "\\").removeSuffix("\\").trimLeft());
-
-            // Last line has even trailing backslashes, but not counted yet.
-            joiner.add(lines.get(i++).replace("\\\\", "\\").trimLeft());
-            value.set(joiner.toString());
-
-            // Add back.
-            keys.add(new PropertyKey(key.get(), value.get(), comments));
-        }
+    /**
+     * Reads the provided reader, pushing every key to the callback as soon as it is parsed.
+     * The reader is not closed.
+     *
+     * @param reader   the reader to read from
+     * @param callback the callback receiving every key, in input order
+     */
+    public void read(final @NonNull Reader reader, final @NonNull Consumer<PropertyKey> callback) {
+        read(reader, null, callback);
+    }
 
+    /**
+     * Reads the provided reader, pushing every key to the callback as soon as it is parsed, and
+     * taking every key, value and comment block from the pool. The reader is not closed.
+     *
+     * @param reader   the reader to read from
+     * @param pool     the pool shared with other files, or null to not pool anything
+     * @param callback the callback receiving every key, in input order
+     */
+    public void read(final @NonNull Reader reader, final @Nullable StringPool pool,
+                     final @NonNull Consumer<PropertyKey> callback) {
+        read(reader, new PropertiesParser(callback, pool));
+    }
+
+    @SneakyThrows
+    private void read(final @NonNull Reader reader, final @NonNull PropertiesParser parser) {
+        val buffer = new char[BUFFER_SIZE];
+        var read = 0;
+        while ((read = reader.read(buffer)) != -1)
+            parser.feed(buffer, 0, read);
+        parser.finish();
+    }
+
+    /**
+     * Reads in a list of properties key from the provided UTF-8 channel. The channel is not closed.
+     *
+     * @param channel the channel to read from
+     * @return the list of keys
+     */
+    @NonNull
+    public List<PropertyKey> read(final @NonNull ReadableByteChannel channel) {
+        val keys = new ArrayList<PropertyKey>();
+        read(channel, keys::add);
         return keys;
     }
 
+    /**
+     * Reads the provided UTF-8 channel, pushing every key to the callback as soon as it is parsed.
+     * The channel is not closed.
+     *
+     * @param channel  the channel to read from
+     * @param callback the callback receiving every key, in input order
+     */
+    public void read(final @NonNull ReadableByteChannel channel, final @NonNull Consumer<PropertyKey> callback) {
+        read(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1), callback);
+    }
+
 }
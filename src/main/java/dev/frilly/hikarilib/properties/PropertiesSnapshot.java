@@ -0,0 +1,194 @@
+package dev.frilly.hikarilib.properties;
+
+import lombok.Cleanup;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.experimental.UtilityClass;
+import lombok.val;
+import lombok.var;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Caches parsed .properties files as compact binary snapshots.
+ * <p>
+ * A snapshot holds every key, value and comment block as length-prefixed UTF-8, and is keyed by the
+ * size, the modification time and a CRC-32 of the text file it was compiled from. A valid snapshot
+ * is read with one bulk read and no text parsing at all.
+ */
+@UtilityClass
+final class PropertiesSnapshot {
+
+    private final int MAGIC = 0x484B5053; // HKPS
+    private final int VERSION = 1;
+
+    /**
+     * Gets the snapshot file of a .properties file.
+     *
+     * @param source    the .properties file
+     * @param directory the directory holding the snapshots
+     * @return the snapshot file
+     */
+    @NonNull
+    Path snapshotOf(final @NonNull File source, final @NonNull File directory) {
+        val absolute = source.getAbsoluteFile();
+        // Files with the same name from different directories may share the cache directory.
+        val name = absolute.getName() + "." + Integer.toHexString(absolute.getPath().hashCode()) + ".snapshot";
+        return directory.toPath().resolve(name);
+    }
+
+    /**
+     * Reads the keys of a .properties file, from its snapshot if it is still valid, or by parsing the
+     * text and compiling a new snapshot otherwise.
+     *
+     * @param source    the .properties file
+     * @param directory the directory holding the snapshots
+     * @return the list of keys
+     */
+    @NonNull
+    @SneakyThrows
+    List<PropertyKey> read(final @NonNull File source, final @NonNull File directory) {
+        if (!source.exists() || !source.getName().endsWith(".properties"))
+            return new ArrayList<>();
+
+        // The size and modification time rule out most stale snapshots before they are read in full.
+        val modified = source.lastModified();
+        val snapshot = snapshotOf(source, directory);
+        val current = matchesHeader(snapshot, source.length(), modified);
+
+        val text = Files.readAllBytes(source.toPath());
+        val crc = new CRC32();
+        crc.update(text, 0, text.length);
+        val hash = crc.getValue();
+        if (current) {
+            val cached = readSnapshot(snapshot, text.length, modified, hash);
+            if (cached != null)
+                return cached;
+        }
+
+        @Cleanup val reader = new InputStreamReader(new ByteArrayInputStream(text), StandardCharsets.UTF_8.newDecoder());
+        val keys = PropertiesReader.read(reader);
+        try {
+            writeSnapshot(snapshot, keys, text.length, modified, hash);
+        } catch (Exception exception) {
+            // The snapshot is only a cache, the parsed keys are still good.
+        }
+        return keys;
+    }
+
+    @SneakyThrows
+    private boolean matchesHeader(final @NonNull Path snapshot, final long size, final long modified) {
+        if (!Files.isRegularFile(snapshot))
+            return false;
+
+        @Cleanup val channel = FileChannel.open(snapshot, StandardOpenOption.READ);
+        val header = ByteBuffer.allocate(24);
+        while (header.hasRemaining())
+            if (channel.read(header) < 0)
+                return false;
+        header.flip();
+        return header.getInt() == MAGIC && header.getInt() == VERSION
+                && header.getLong() == size && header.getLong() == modified;
+    }
+
+    @Nullable
+    @SneakyThrows
+    private List<PropertyKey> readSnapshot(final @NonNull Path snapshot, final long size, final long modified,
+                                           final long hash) {
+        if (!Files.isRegularFile(snapshot))
+            return null;
+
+        val buffer = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != size
+                    || buffer.getLong() != modified || buffer.getLong() != hash)
+                return null;
+
+            // Every key takes at least 12 bytes, anything claiming more is corrupted.
+            val count = buffer.getInt();
+            if (count < 0 || count > buffer.remaining() / 12)
+                return null;
+            val keys = new ArrayList<PropertyKey>(count);
+            for (var i = 0; i < count; i++) {
+                val key = readString(buffer);
+                val value = readString(buffer);
+                val commentCount = buffer.getInt();
+                if (commentCount < 0 || commentCount > buffer.remaining() / 4)
+                    return null;
+                val comments = new ArrayList<String>(commentCount);
+                for (var j = 0; j < commentCount; j++)
+                    comments.add(readString(buffer));
+                keys.add(new PropertyKey(key, value, comments));
+            }
+            return buffer.hasRemaining() ? null : keys;
+        } catch (BufferUnderflowException | IllegalArgumentException exception) {
+            // Truncated or corrupted, it will simply be compiled again.
+            return null;
+        }
+    }
+
+    @NonNull
+    private String readString(final @NonNull ByteBuffer buffer) {
+        val length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining())
+            throw new IllegalArgumentException("Invalid string length " + length);
+        val string = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+
+    @SneakyThrows
+    private void writeSnapshot(final @NonNull Path snapshot, final @NonNull List<PropertyKey> keys, final long size,
+                               final long modified, final long hash) {
+        Files.createDirectories(snapshot.getParent());
+        val temp = PropertiesWriter.createTemp(snapshot);
+        try {
+            writeKeys(temp, keys, size, modified, hash);
+            PropertiesWriter.replace(temp, snapshot);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @SneakyThrows
+    private void writeKeys(final @NonNull Path path, final @NonNull List<PropertyKey> keys, final long size,
+                           final long modified, final long hash) {
+        @Cleanup val output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(size);
+        output.writeLong(modified);
+        output.writeLong(hash);
+        output.writeInt(keys.size());
+        for (val key : keys) {
+            writeString(output, key.getKey());
+            writeString(output, key.getValue());
+            output.writeInt(key.getComments().size());
+            for (val comment : key.getComments())
+                writeString(output, comment);
+        }
+    }
+
+    @SneakyThrows
+    private void writeString(final @NonNull DataOutputStream output, final @NonNull String string) {
+        val bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+}
@@ -0,0 +1,156 @@
+package dev.frilly.hikarilib.properties;
+
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.experimental.UtilityClass;
+import lombok.val;
+
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the directories of watched {@link PropertiesFile}s through one shared {@link WatchService}
+ * and one shared thread, reloading a file once a burst of events for it has settled down.
+ */
+@UtilityClass
+final class PropertiesWatcher {
+
+    private final Object lock = new Object();
+    private final Map<Path, WatchKey> keys = new HashMap<>();
+    private final Map<Path, List<Registration>> registrations = new HashMap<>();
+    private WatchService service;
+
+    /**
+     * Starts watching a file.
+     *
+     * @param file     the file to reload on changes
+     * @param path     the path of the file on disk
+     * @param debounce the quiet time in milliseconds to wait for before reloading
+     */
+    @SneakyThrows
+    void register(final @NonNull PropertiesFile file, final @NonNull Path path, final long debounce) {
+        val absolute = path.toAbsolutePath().normalize();
+        val directory = absolute.getParent();
+
+        synchronized (lock) {
+            if (service == null) {
+                service = FileSystems.getDefault().newWatchService();
+                val thread = new Thread(PropertiesWatcher::poll, "HikariLibrary Properties Watcher");
+                thread.setDaemon(true);
+                thread.start();
+            }
+
+            if (!keys.containsKey(directory)) {
+                keys.put(directory, directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE));
+            }
+            registrations.computeIfAbsent(directory, it -> new ArrayList<>())
+                    .add(new Registration(file, absolute, debounce));
+        }
+    }
+
+    /**
+     * Stops watching a file. If it was the last watched file in its directory, the directory is not
+     * watched anymore either.
+     *
+     * @param file the file
+     */
+    void unregister(final @NonNull PropertiesFile file) {
+        synchronized (lock) {
+            val iterator = registrations.entrySet().iterator();
+            while (iterator.hasNext()) {
+                val entry = iterator.next();
+                entry.getValue().removeIf(it -> {
+                    if (it.file != file)
+                        return false;
+                    it.cancel();
+                    return true;
+                });
+                if (entry.getValue().isEmpty()) {
+                    val key = keys.remove(entry.getKey());
+                    if (key != null)
+                        key.cancel();
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private void poll() {
+        while (true) {
+            final WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException exception) {
+                return;
+            }
+
+            val directory = (Path) key.watchable();
+            synchronized (lock) {
+                val watched = registrations.get(directory);
+                if (watched != null) {
+                    for (val event : key.pollEvents()) {
+                        // On overflow, we can't know which files changed.
+                        val changed = event.kind() == StandardWatchEventKinds.OVERFLOW ? null
+                                : directory.resolve((Path) event.context());
+                        for (val registration : watched) {
+                            if (changed == null || changed.equals(registration.path))
+                                registration.schedule();
+                        }
+                    }
+                } else {
+                    key.pollEvents();
+                }
+            }
+            key.reset();
+        }
+    }
+
+    /**
+     * A watched file, along with its pending debounced reload.
+     */
+    private static final class Registration {
+
+        private final PropertiesFile file;
+        private final Path path;
+        private final long debounce;
+        private ScheduledFuture<?> pending;
+
+        private Registration(final @NonNull PropertiesFile file, final @NonNull Path path, final long debounce) {
+            this.file = file;
+            this.path = path;
+            this.debounce = debounce;
+        }
+
+        private void schedule() {
+            cancel();
+            pending = PropertiesExecutors.scheduler().schedule(() -> {
+                try {
+                    file.reloadIfChanged();
+                } catch (Exception exception) {
+                    // Don't let the scheduler swallow it, the file may be half-written or broken.
+                    val thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, exception);
+                }
+            }, debounce, TimeUnit.MILLISECONDS);
+        }
+
+        private void cancel() {
+            if (pending != null)
+                pending.cancel(false);
+            pending = null;
+        }
+
+    }
+
+}
@@ -3,69 +3,285 @@ package dev.frilly.hikarilib.properties;
 import lombok.*;
 import lombok.experimental.UtilityClass;
 
-import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileWriter;
-import java.io.PrintWriter;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Writes .properties files.
+ * <p>
+ * Every key is escaped straight into one reusable character buffer in a single pass, which is
+ * drained to the underlying writer whenever it fills up, so no temporary strings are created.
  */
 @UtilityClass
 public final class PropertiesWriter {
 
-    private String encodeKey(final @NonNull String key) {
-        // Replace: "\" -> "\\", ":" -> "\:", "=" -> "\=", " " -> "\ "
-        return key.replace("\\", "\\\\").replace(":", "\\:")
-                .replace("=", "\\=").replace(" ", "\\ ");
-    }
+    private final int BUFFER_SIZE = 1 << 16;
+    private final String LINE_SEPARATOR = System.lineSeparator();
 
-    private String encodeValue(final @NonNull String value) {
-        return value.replace("\\", "\\\\");
-    }
-    
-    private String encodeComment(final @NonNull String comment) {
-        if(comment.startsWith("!") || comment.startsWith("#"))
-            return comment;
-        return String.format("# %s", comment);
+    private void write(final @NonNull Output output, final @NonNull PropertyKey key) {
+        write(output, key, true);
     }
 
-    private void write(final @NonNull PrintWriter writer, final @NonNull PropertyKey key) {
+    private void write(final @NonNull Output output, final @NonNull PropertyKey key, final boolean separate) {
         // Adds an empty line between keys with comments.
-        if(!key.getComments().isEmpty())
-            writer.println();
-        
-        key.getComments().stream().map(PropertiesWriter::encodeComment).forEach(writer::println);
-        val split = key.getValue().split("\n");
+        if (separate && !key.getComments().isEmpty())
+            output.append(LINE_SEPARATOR);
+
+        for (val comment : key.getComments()) {
+            if (!comment.startsWith("!") && !comment.startsWith("#"))
+                output.append("# ");
+            output.append(comment);
+            output.append(LINE_SEPARATOR);
+        }
+
+        // Trailing line breaks don't make it into the file.
+        val value = key.getValue();
+        var end = value.length();
+        while (end > 0 && value.charAt(end - 1) == '\n')
+            end--;
+
+        output.appendKey(key.getKey());
+        output.append('=');
 
         // If it's a one-liner, just write it out.
-        if (split.length == 1) {
-            writer.printf("%s=%s\n", encodeKey(key.getKey()), encodeValue(split[0]));
+        var lineEnd = value.indexOf('\n');
+        if (lineEnd < 0 || lineEnd >= end) {
+            output.appendValue(value, 0, end);
+            output.append('\n');
             return;
         }
 
-        // It's a multi-line then.
-        writer.printf("%s=%s \\\n", encodeKey(key.getKey()), encodeValue(split[0])); // First line is handled separately.
-        for (var i = 1; i < split.length; i++) {
-            if (i == split.length - 1) // Last line is also handled separately.
-                writer.printf("  %s\n", encodeValue(split[i]));
-            else
-                writer.printf("  %s \\\n", encodeValue(split[i]));
+        // It's a multi-line then, every line but the last ends with a continuation.
+        output.appendValue(value, 0, lineEnd);
+        while (lineEnd < end) {
+            output.append(" \\\n  ");
+            val lineStart = lineEnd + 1;
+            lineEnd = value.indexOf('\n', lineStart);
+            if (lineEnd < 0 || lineEnd > end)
+                lineEnd = end;
+            output.appendValue(value, lineStart, lineEnd);
         }
+        output.append('\n');
     }
 
     /**
-     * Writes a .properties file with the provided keys.
+     * Writes all keys to the provided writer. The writer is flushed, but not closed.
+     *
+     * @param writer the writer to write to
+     * @param keys   the keys to write
+     */
+    @SneakyThrows
+    public void write(final @NonNull Writer writer, final @NonNull Iterator<PropertyKey> keys) {
+        val output = new Output(writer);
+        while (keys.hasNext())
+            write(output, keys.next());
+        output.drain();
+        writer.flush();
+    }
+
+    /**
+     * Writes a .properties file with the provided keys, pulling them one by one from the iterator.
      *
      * @param file the file to write to
      * @param keys the keys to write
      */
     @SneakyThrows
+    public void write(final @NonNull File file, final @NonNull Iterator<PropertyKey> keys) {
+        @Cleanup val writer = new OutputStreamWriter(new FileOutputStream(file), Charset.defaultCharset());
+        write(writer, keys);
+    }
+
+    /**
+     * Writes a .properties file with the provided keys.
+     *
+     * @param file the file to write to
+     * @param keys the keys to write
+     */
     public void write(final @NonNull File file, final @NonNull List<PropertyKey> keys) {
-        @Cleanup val writer = new PrintWriter(new BufferedWriter(new FileWriter(file)));
-        keys.forEach(it -> write(writer, it));
+        write(file, keys.iterator());
+    }
+
+    /**
+     * Writes a .properties file with the provided keys, without ever leaving a partially written file.
+     * <p>
+     * The keys are written to a temporary file next to the target, which is forced to disk and then
+     * atomically moved over the target.
+     *
+     * @param file the file to write to
+     * @param keys the keys to write
+     */
+    @SneakyThrows
+    public void writeAtomically(final @NonNull File file, final @NonNull List<PropertyKey> keys) {
+        val target = file.toPath().toAbsolutePath();
+        val temp = createTemp(target);
+        try {
+            writeAndForce(temp, keys.iterator());
+            replace(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Creates an empty temporary file next to the target, to be moved over it once written.
+     * <p>
+     * The file gets the permissions of the target, or the default permissions of new files if the
+     * target doesn't exist yet, so replacing the target doesn't change who can read it.
+     *
+     * @param target the file to replace
+     * @return the temporary file
+     */
+    @NonNull
+    @SneakyThrows
+    Path createTemp(final @NonNull Path target) {
+        while (true) {
+            val temp = target.resolveSibling(target.getFileName() + "."
+                    + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW).close();
+            } catch (FileAlreadyExistsException exception) {
+                continue;
+            }
+
+            try {
+                if (Files.exists(target) && Files.getFileAttributeView(target, PosixFileAttributeView.class) != null)
+                    Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+            } catch (Throwable throwable) {
+                Files.deleteIfExists(temp);
+                throw throwable;
+            }
+            return temp;
+        }
+    }
+
+    /**
+     * Moves a fully written temporary file over the target, atomically if the file system allows it.
+     *
+     * @param temp   the temporary file
+     * @param target the file to replace
+     */
+    @SneakyThrows
+    void replace(final @NonNull Path temp, final @NonNull Path target) {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException exception) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Renders a single key exactly as it would be written to a file, encoded in UTF-8.
+     *
+     * @param key      the key
+     * @param separate whether to add the empty line written before keys with comments
+     * @return the encoded key
+     */
+    @NonNull
+    @SneakyThrows
+    byte[] render(final @NonNull PropertyKey key, final boolean separate) {
+        val bytes = new ByteArrayOutputStream(64 + key.getKey().length() + key.getValue().length());
+        val writer = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+        val output = new Output(writer, 256);
+        write(output, key, separate);
+        output.drain();
         writer.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Gets the length of the empty line {@link #render(PropertyKey, boolean)} adds before a key.
+     *
+     * @param key the key
+     * @return the length in bytes, 0 if the key has no comments
+     */
+    int separatorLength(final @NonNull PropertyKey key) {
+        return key.getComments().isEmpty() ? 0 : LINE_SEPARATOR.length();
+    }
+
+    @SneakyThrows
+    private void writeAndForce(final @NonNull Path path, final @NonNull Iterator<PropertyKey> keys) {
+        @Cleanup val channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        write(new OutputStreamWriter(Channels.newOutputStream(channel), Charset.defaultCharset()), keys);
+        channel.force(true);
+    }
+
+    /**
+     * A reusable character buffer that escapes straight into itself.
+     */
+    private static final class Output {
+
+        private final Writer writer;
+        private final char[] buffer;
+        private int size = 0;
+
+        private Output(final @NonNull Writer writer) {
+            this(writer, BUFFER_SIZE);
+        }
+
+        private Output(final @NonNull Writer writer, final int capacity) {
+            this.writer = writer;
+            this.buffer = new char[capacity];
+        }
+
+        @SneakyThrows
+        private void drain() {
+            writer.write(buffer, 0, size);
+            size = 0;
+        }
+
+        private void append(final char c) {
+            if (size == buffer.length)
+                drain();
+            buffer[size++] = c;
+        }
+
+        private void append(final @NonNull String s) {
+            var from = 0;
+            while (from < s.length()) {
+                if (size == buffer.length)
+                    drain();
+                val to = Math.min(s.length(), from + buffer.length - size);
+                s.getChars(from, to, buffer, size);
+                size += to - from;
+                from = to;
+            }
+        }
+
+        private void appendKey(final @NonNull String key) {
+            for (var i = 0; i < key.length(); i++) {
+                val c = key.charAt(i);
+                if (c == '\\' || c == ':' || c == '=' || c == ' ')
+                    append('\\');
+                append(c);
+            }
+        }
+
+        private void appendValue(final @NonNull String value, final int from, final int to) {
+            for (var i = from; i < to; i++) {
+                val c = value.charAt(i);
+                if (c == '\\')
+                    append('\\');
+                append(c);
+            }
+        }
+
     }
 
 }
@@ -0,0 +1,259 @@
+package dev.frilly.hikarilib.properties;
+
+import lombok.Cleanup;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.val;
+import lombok.var;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Remembers where every key of a loaded .properties file lives on disk, so that saving only has to
+ * render the records that changed.
+ * <p>
+ * The file is spliced into a temporary file, copying the untouched ranges with
+ * {@link FileChannel#transferTo} and writing only the changed records, which is then moved over the
+ * original. Records are never overwritten in place, even when they keep their size, so a crash leaves
+ * either the old or the new file behind.
+ */
+final class RecordIndex {
+
+    private PropertyKey[] keys = new PropertyKey[64];
+    private long[] starts = new long[64];
+    private long[] ends = new long[64];
+    private int size = 0;
+
+    private final long fileSize;
+    private final long modified;
+
+    /**
+     * Constructs an empty index for the provided file, remembering its current size and modification
+     * time. This should be done before reading the file, so changes made while reading are noticed.
+     *
+     * @param file the file
+     */
+    RecordIndex(final @NonNull File file) {
+        this(file.length(), file.lastModified());
+    }
+
+    private RecordIndex(final long fileSize, final long modified) {
+        this.fileSize = fileSize;
+        this.modified = modified;
+    }
+
+    /**
+     * Adds the next record of the file.
+     *
+     * @param key   the key
+     * @param start the offset of the first byte of the record
+     * @param end   the offset right after the record
+     */
+    void add(final @NonNull PropertyKey key, final long start, final long end) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+        }
+        keys[size] = key;
+        starts[size] = start;
+        ends[size] = end;
+        size++;
+    }
+
+    /**
+     * Gets the number of records, which is more than the number of keys if the file defines a key more
+     * than once. Such files can't be patched, since the records of a key would have to be merged.
+     *
+     * @return the number of records
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Patches the file so that it holds the provided keys, in order, touching only the changed records.
+     * <p>
+     * Patching is not possible if the file was changed on disk since it was indexed, if it has no keys
+     * at all, or if the platform charset is not UTF-8, since the untouched records must stay in the same
+     * encoding as the new ones.
+     *
+     * @param file the file
+     * @param keys the keys the file should hold
+     * @return the index of the patched file, or null if it could not be patched
+     */
+    @Nullable
+    @SneakyThrows
+    RecordIndex patch(final @NonNull File file, final @NonNull List<PropertyKey> keys) {
+        if (size == 0 || !Charset.defaultCharset().equals(StandardCharsets.UTF_8))
+            return null;
+        if (!file.exists() || file.length() != fileSize || file.lastModified() != modified)
+            return null;
+
+        val remaining = new HashMap<String, PropertyKey>(keys.size() * 2);
+        for (val key : keys)
+            remaining.put(key.getKey(), key);
+
+        // Every changed or removed record, in file order.
+        val edits = new ArrayList<Edit>();
+        val records = new ArrayList<PropertyKey>(size);
+        for (var i = 0; i < size; i++) {
+            val current = remaining.remove(this.keys[i].getKey());
+            records.add(current);
+            if (current == null)
+                edits.add(new Edit(starts[i], ends[i], new byte[0]));
+            else if (!current.equals(this.keys[i]))
+                edits.add(new Edit(starts[i], ends[i], PropertiesWriter.render(current, false)));
+        }
+
+        // New keys go right after the last record, in the order they were added.
+        val appended = new ArrayList<PropertyKey>();
+        val insertAt = ends[size - 1];
+        for (val key : keys) {
+            if (remaining.containsKey(key.getKey()))
+                appended.add(key);
+        }
+        // A last record without a line break only keeps it that way if it is left untouched.
+        val lastEdited = !edits.isEmpty() && edits.get(edits.size() - 1).end == insertAt;
+        val needsBreak = !appended.isEmpty() && !lastEdited && !endsWithLineBreak(file, insertAt);
+        val lengths = new int[appended.size()];
+        if (!appended.isEmpty()) {
+            val rendered = new ArrayList<byte[]>(appended.size() + 1);
+            if (needsBreak)
+                rendered.add(new byte[]{'\n'});
+            for (var i = 0; i < appended.size(); i++) {
+                val bytes = PropertiesWriter.render(appended.get(i), true);
+                lengths[i] = bytes.length;
+                rendered.add(bytes);
+            }
+            edits.add(new Edit(insertAt, insertAt, concat(rendered)));
+        }
+        if (edits.isEmpty())
+            return this;
+
+        splice(file, edits);
+        return reindex(file, records, edits, appended, lengths, needsBreak);
+    }
+
+    @SneakyThrows
+    private boolean endsWithLineBreak(final @NonNull File file, final long position) {
+        if (position == 0)
+            return true;
+        @Cleanup val channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        val last = ByteBuffer.allocate(1);
+        channel.read(last, position - 1);
+        return last.get(0) == '\n' || last.get(0) == '\r';
+    }
+
+    @NonNull
+    private static byte[] concat(final @NonNull List<byte[]> parts) {
+        var length = 0;
+        for (val part : parts)
+            length += part.length;
+        val result = new byte[length];
+        var offset = 0;
+        for (val part : parts) {
+            System.arraycopy(part, 0, result, offset, part.length);
+            offset += part.length;
+        }
+        return result;
+    }
+
+    @SneakyThrows
+    private void splice(final @NonNull File file, final @NonNull List<Edit> edits) {
+        val target = file.toPath().toAbsolutePath();
+        val temp = PropertiesWriter.createTemp(target);
+        try {
+            spliceInto(target.toFile(), temp.toFile(), edits);
+            PropertiesWriter.replace(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @SneakyThrows
+    private void spliceInto(final @NonNull File source, final @NonNull File temp, final @NonNull List<Edit> edits) {
+        @Cleanup val in = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+        @Cleanup val out = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        var position = 0L;
+        for (val edit : edits) {
+            transfer(in, out, position, edit.start);
+            val buffer = ByteBuffer.wrap(edit.bytes);
+            while (buffer.hasRemaining())
+                out.write(buffer);
+            position = edit.end;
+        }
+        transfer(in, out, position, fileSize);
+        out.force(true);
+    }
+
+    @SneakyThrows
+    private static void transfer(final @NonNull FileChannel in, final @NonNull FileChannel out, long from,
+                                 final long to) {
+        while (from < to)
+            from += in.transferTo(from, to - from, out);
+    }
+
+    /**
+     * Builds the index of the patched file by shifting every record by the edits before it.
+     */
+    @NonNull
+    private RecordIndex reindex(final @NonNull File file, final @NonNull List<PropertyKey> records,
+                                final @NonNull List<Edit> edits, final @NonNull List<PropertyKey> appended,
+                                final @NonNull int[] lengths, final boolean needsBreak) {
+        val index = new RecordIndex(file);
+        var shift = 0L;
+        var edit = 0;
+        for (var i = 0; i < size; i++) {
+            val current = records.get(i);
+            val start = starts[i] + shift;
+            var end = ends[i] + shift;
+            if (edit < edits.size() && edits.get(edit).start == starts[i] && edits.get(edit).end == ends[i]) {
+                val length = edits.get(edit).bytes.length;
+                end = start + length;
+                shift += length - (ends[i] - starts[i]);
+                edit++;
+            }
+            if (current != null)
+                index.add(current, start, end);
+        }
+
+        // The appended records, each after its optional empty separator line.
+        var position = ends[size - 1] + shift + (needsBreak ? 1 : 0);
+        for (var i = 0; i < appended.size(); i++) {
+            val key = appended.get(i);
+            index.add(key, position + PropertiesWriter.separatorLength(key), position + lengths[i]);
+            position += lengths[i];
+        }
+        return index;
+    }
+
+    /**
+     * Replaces the bytes between two offsets of the original file.
+     */
+    private static final class Edit {
+
+        private final long start;
+        private final long end;
+        private final byte[] bytes;
+
+        private Edit(final long start, final long end, final @NonNull byte[] bytes) {
+            this.start = start;
+            this.end = end;
+            this.bytes = bytes;
+        }
+
+    }
+
+}
@@ -0,0 +1,142 @@
+package dev.frilly.hikarilib.properties;
+
+import lombok.NonNull;
+import lombok.val;
+import lombok.var;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shares identical strings and comment blocks between the keys of many .properties files.
+ * <p>
+ * A pool can be handed to {@link PropertiesReader} or to {@link PropertiesFile#pooled(java.io.File, StringPool)}
+ * and shared by any amount of files, such as one per locale, from any amount of threads. Every key,
+ * value and comment line is replaced by the first equal string the pool has seen, every key without
+ * comments shares a single immutable empty list, and equal comment blocks share one immutable list.
+ */
+public final class StringPool {
+
+    // Rough retained sizes on a 64-bit JVM with compressed pointers.
+    private static final int STRING_OVERHEAD = 24 + 16;
+    private static final int LIST_OVERHEAD = 24 + 16;
+
+    private final Map<String, String> strings = new ConcurrentHashMap<>();
+    private final Map<List<String>, List<String>> blocks = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder saved = new LongAdder();
+
+    /**
+     * Gets the pooled instance of a string, adding it to the pool if it is not there yet.
+     *
+     * @param string the string
+     * @return the pooled string, equal to the provided one
+     */
+    @NonNull
+    public String intern(final @NonNull String string) {
+        val pooled = strings.putIfAbsent(string, string);
+        if (pooled == null)
+            return string;
+        if (pooled != string) {
+            hits.increment();
+            saved.add(STRING_OVERHEAD + 2L * string.length());
+        }
+        return pooled;
+    }
+
+    /**
+     * Gets the pooled, read-only instance of a comment block, with every line pooled as well.
+     *
+     * @param comments the comment lines
+     * @return the pooled block, equal to the provided one
+     */
+    @NonNull
+    public List<String> comments(final @NonNull List<String> comments) {
+        if (comments.isEmpty()) {
+            if (comments != Collections.<String>emptyList()) {
+                hits.increment();
+                saved.add(LIST_OVERHEAD);
+            }
+            return Collections.emptyList();
+        }
+
+        val existing = blocks.get(comments);
+        if (existing != null) {
+            hits.increment();
+            saved.add(LIST_OVERHEAD + 4L * comments.size());
+            for (var i = 0; i < comments.size(); i++) {
+                val line = comments.get(i);
+                if (line != existing.get(i))
+                    saved.add(STRING_OVERHEAD + 2L * line.length());
+            }
+            return existing;
+        }
+
+        val lines = new ArrayList<String>(comments.size());
+        for (val line : comments)
+            lines.add(intern(line));
+        val block = Collections.unmodifiableList(lines);
+        val pooled = blocks.putIfAbsent(block, block);
+        return pooled == null ? block : pooled;
+    }
+
+    /**
+     * Gets a key whose name, value and comments all come from the pool.
+     *
+     * @param key the key
+     * @return the pooled key, equal to the provided one
+     */
+    @NonNull
+    public PropertyKey key(final @NonNull PropertyKey key) {
+        return new PropertyKey(intern(key.getKey()), intern(key.getValue()), comments(key.getComments()));
+    }
+
+    /**
+     * Gets the amount of strings and comment blocks in the pool.
+     *
+     * @return the amount of pooled entries
+     */
+    public int size() {
+        return strings.size() + blocks.size();
+    }
+
+    /**
+     * Gets how many times a duplicate was replaced by a pooled instance.
+     *
+     * @return the amount of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets an estimate of the heap the pool saved, in bytes, by dropping duplicates. This assumes a
+     * 64-bit JVM with compressed pointers and two bytes per character, so it is an upper bound on
+     * JVMs with compact strings.
+     *
+     * @return the estimated saved bytes
+     */
+    public long getSavedBytes() {
+        return saved.sum();
+    }
+
+    /**
+     * Empties the pool and resets its statistics. Keys read before stay valid.
+     */
+    public void clear() {
+        strings.clear();
+        blocks.clear();
+        hits.reset();
+        saved.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "StringPool(size=" + size() + ", hits=" + getHits() + ", savedBytes=" + getSavedBytes() + ")";
+    }
+
+}
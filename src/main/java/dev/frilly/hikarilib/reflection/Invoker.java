@@ -0,0 +1,21 @@
+package dev.frilly.hikarilib.reflection;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Invokes a single method, see {@link Invokers#invoker(java.lang.reflect.Method)}.
+ */
+@FunctionalInterface
+public interface Invoker {
+
+    /**
+     * Invokes the method. Exceptions thrown by the method are rethrown as is.
+     *
+     * @param target    the object to invoke the method on, ignored for static methods
+     * @param arguments the arguments
+     * @return the result, boxed, or null for void methods
+     */
+    @Nullable
+    Object invoke(@Nullable Object target, Object... arguments);
+
+}
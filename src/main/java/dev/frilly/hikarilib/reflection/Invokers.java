@@ -0,0 +1,373 @@
+package dev.frilly.hikarilib.reflection;
+
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.experimental.UtilityClass;
+import lombok.val;
+import lombok.var;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandleProxies;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Resolves reflective members once into {@link MethodHandle}s and functional interfaces, so that
+ * calling them on hot paths costs about as much as a direct call.
+ * <p>
+ * Everything is cached per member, alongside the class declaring it, so nothing is kept alive once
+ * that class is unloaded, such as when its plugin is disabled. Private members are supported.
+ * <pre>{@code
+ * BiConsumer<Object, Object> handler = Invokers.lambda(method, BiConsumer.class);
+ * handler.accept(listener, event);
+ * }</pre>
+ */
+@UtilityClass
+public final class Invokers {
+
+    private final ClassValue<Map<Object, Object>> cache = new ClassValue<Map<Object, Object>>() {
+        @Override
+        protected Map<Object, Object> computeValue(final Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    /**
+     * Gets a lookup with full access to a class, as if it was created by the class itself.
+     *
+     * @param type the class
+     * @return the lookup
+     */
+    @NonNull
+    public MethodHandles.Lookup lookup(final @NonNull Class<?> type) {
+        return Lookups.of(type);
+    }
+
+    /**
+     * Gets the method handle of a method, of the exact type of the method.
+     *
+     * @param method the method
+     * @return the method handle
+     */
+    @NonNull
+    public MethodHandle handle(final @NonNull Method method) {
+        return cached(method, "handle", () -> {
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method);
+        });
+    }
+
+    /**
+     * Gets the method handle reading a field, of type {@code (Object)Object}. The argument is ignored
+     * for static fields.
+     *
+     * @param field the field
+     * @return the method handle
+     */
+    @NonNull
+    public MethodHandle getter(final @NonNull Field field) {
+        return cached(field, "getter", () -> {
+            field.setAccessible(true);
+            var handle = MethodHandles.lookup().unreflectGetter(field);
+            if (Modifier.isStatic(field.getModifiers()))
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            return handle.asType(MethodType.methodType(Object.class, Object.class));
+        });
+    }
+
+    /**
+     * Gets the method handle writing a field, of type {@code (Object,Object)void}. The first argument
+     * is ignored for static fields.
+     *
+     * @param field the field, which must not be final
+     * @return the method handle
+     */
+    @NonNull
+    public MethodHandle setter(final @NonNull Field field) {
+        return cached(field, "setter", () -> {
+            field.setAccessible(true);
+            var handle = MethodHandles.lookup().unreflectSetter(field);
+            if (Modifier.isStatic(field.getModifiers()))
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            return handle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        });
+    }
+
+    /**
+     * Gets an {@link Invoker} of a method, a faster replacement for {@link Method#invoke}.
+     * <p>
+     * Methods taking up to two arguments, counting the object they are invoked on, are called through
+     * interfaces generated by {@link #lambda}, others through their method handle.
+     *
+     * @param method the method
+     * @return the invoker
+     */
+    @NonNull
+    public Invoker invoker(final @NonNull Method method) {
+        return cached(method, "invoker", () -> {
+            val arity = method.getParameterCount();
+            try {
+                val fast = fastInvoker(method, arity);
+                if (fast != null)
+                    return fast;
+            } catch (Throwable exception) {
+                // Falls back to the method handle.
+            }
+
+            var handle = handle(method);
+            if (Modifier.isStatic(method.getModifiers()))
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            val spread = handle.asType(handle.type().generic()).asSpreader(Object[].class, arity);
+            return (Invoker) (target, arguments) -> invoke(spread, target, arguments);
+        });
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private Invoker fastInvoker(final @NonNull Method method, final int arity) throws Throwable {
+        val isVoid = method.getReturnType() == void.class;
+        val handle = handle(method);
+        switch (handle.type().parameterCount()) {
+            case 0: {
+                if (isVoid) {
+                    val runnable = (Runnable) metafactory(method, Runnable.class, handle);
+                    return (target, arguments) -> {
+                        check(arguments, arity);
+                        runnable.run();
+                        return null;
+                    };
+                }
+                val supplier = (Supplier<Object>) metafactory(method, Supplier.class, handle);
+                return (target, arguments) -> {
+                    check(arguments, arity);
+                    return supplier.get();
+                };
+            }
+            case 1: {
+                // The only argument is either the target or the single argument of a static method.
+                val isStatic = Modifier.isStatic(method.getModifiers());
+                if (isVoid) {
+                    val consumer = (Consumer<Object>) metafactory(method, Consumer.class, handle);
+                    return (target, arguments) -> {
+                        check(arguments, arity);
+                        consumer.accept(isStatic ? arguments[0] : target);
+                        return null;
+                    };
+                }
+                val function = (Function<Object, Object>) metafactory(method, Function.class, handle);
+                return (target, arguments) -> {
+                    check(arguments, arity);
+                    return function.apply(isStatic ? arguments[0] : target);
+                };
+            }
+            case 2: {
+                if (Modifier.isStatic(method.getModifiers()))
+                    return null;
+                if (isVoid) {
+                    val consumer = (BiConsumer<Object, Object>) metafactory(method, BiConsumer.class, handle);
+                    return (target, arguments) -> {
+                        check(arguments, arity);
+                        consumer.accept(target, arguments[0]);
+                        return null;
+                    };
+                }
+                val function = (BiFunction<Object, Object, Object>) metafactory(method, BiFunction.class, handle);
+                return (target, arguments) -> {
+                    check(arguments, arity);
+                    return function.apply(target, arguments[0]);
+                };
+            }
+            default:
+                return null;
+        }
+    }
+
+    private void check(final Object[] arguments, final int arity) {
+        if ((arguments == null ? 0 : arguments.length) != arity)
+            throw new IllegalArgumentException("Expected " + arity + " arguments");
+    }
+
+    @SneakyThrows
+    private Object invoke(final @NonNull MethodHandle handle, final Object target, final Object[] arguments) {
+        return (Object) handle.invokeExact(target, arguments);
+    }
+
+    /**
+     * Implements a functional interface with a method, through {@link LambdaMetafactory}, so that
+     * calling the interface is as fast as calling the method directly.
+     * <p>
+     * The parameters of the interface are the parameters of the method, preceded by the object to
+     * invoke it on if the method isn't static. They are cast and unboxed as needed, as is the result.
+     * <pre>{@code
+     * // For int Player#getLevel()
+     * ToIntFunction<Object> level = Invokers.lambda(getLevel, ToIntFunction.class);
+     * }</pre>
+     * If the interface can't be generated, such as if the class of the method can't see the
+     * interface, a slower proxy is returned instead.
+     *
+     * @param method     the method
+     * @param functional the functional interface
+     * @param <T>        the type of the interface
+     * @return the implementation
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public <T> T lambda(final @NonNull Method method, final @NonNull Class<? super T> functional) {
+        return (T) cached(method, functional, () -> {
+            val sam = singleAbstractMethod(functional);
+            val handle = handle(method);
+            if (sam.getParameterCount() != handle.type().parameterCount())
+                throw new IllegalArgumentException("Can't implement " + functional.getName() + " with " + method);
+
+            try {
+                return metafactory(method, functional, handle);
+            } catch (Throwable exception) {
+                val samType = MethodType.methodType(sam.getReturnType(), sam.getParameterTypes());
+                return MethodHandleProxies.asInterfaceInstance(functional, handle.asType(samType));
+            }
+        });
+    }
+
+    /**
+     * Spins the implementation of a functional interface with {@link LambdaMetafactory}.
+     */
+    @NonNull
+    private Object metafactory(final @NonNull Method method, final @NonNull Class<?> functional,
+                               final @NonNull MethodHandle handle) throws Throwable {
+        val sam = singleAbstractMethod(functional);
+        val samType = MethodType.methodType(sam.getReturnType(), sam.getParameterTypes());
+
+        // The generated class lives next to the method, so it must be able to see the interface.
+        val host = method.getDeclaringClass();
+        if (host.getClassLoader() != functional.getClassLoader()
+                && Class.forName(functional.getName(), false, host.getClassLoader()) != functional)
+            throw new IllegalArgumentException(functional.getName() + " isn't visible from " + host.getName());
+
+        val lookup = Lookups.of(host);
+        val site = LambdaMetafactory.metafactory(lookup, sam.getName(), MethodType.methodType(functional),
+                samType, lookup.unreflect(method), instantiated(handle.type(), samType));
+        return site.getTarget().invoke();
+    }
+
+    /**
+     * Gets the type the method is invoked with: the type of the method, with primitives boxed
+     * wherever the interface uses references.
+     */
+    @NonNull
+    private MethodType instantiated(final @NonNull MethodType method, final @NonNull MethodType sam) {
+        var type = method;
+        for (var i = 0; i < type.parameterCount(); i++) {
+            if (type.parameterType(i).isPrimitive() && !sam.parameterType(i).isPrimitive())
+                type = type.changeParameterType(i, box(type.parameterType(i)));
+        }
+        if (sam.returnType() == void.class)
+            return type.changeReturnType(void.class);
+        if (type.returnType().isPrimitive() && !sam.returnType().isPrimitive())
+            return type.changeReturnType(box(type.returnType()));
+        return type;
+    }
+
+    @NonNull
+    private Class<?> box(final @NonNull Class<?> primitive) {
+        return MethodType.methodType(primitive).wrap().returnType();
+    }
+
+    @NonNull
+    private Method singleAbstractMethod(final @NonNull Class<?> functional) {
+        if (!functional.isInterface())
+            throw new IllegalArgumentException(functional.getName() + " is not an interface");
+
+        Method found = null;
+        for (val method : functional.getMethods()) {
+            if (!Modifier.isAbstract(method.getModifiers()) || isObjectMethod(method))
+                continue;
+            if (found != null)
+                throw new IllegalArgumentException(functional.getName() + " is not a functional interface");
+            found = method;
+        }
+        if (found == null)
+            throw new IllegalArgumentException(functional.getName() + " is not a functional interface");
+        return found;
+    }
+
+    private boolean isObjectMethod(final @NonNull Method method) {
+        try {
+            Object.class.getMethod(method.getName(), method.getParameterTypes());
+            return true;
+        } catch (NoSuchMethodException exception) {
+            return false;
+        }
+    }
+
+    @NonNull
+    @SuppressWarnings("unchecked")
+    private <T> T cached(final @NonNull Member member, final @NonNull Object kind, final @NonNull Resolver<T> resolver) {
+        val map = cache.get(member.getDeclaringClass());
+        val key = new Key(member, kind);
+        val existing = map.get(key);
+        if (existing != null)
+            return (T) existing;
+
+        val resolved = resolve(resolver);
+        val previous = map.putIfAbsent(key, resolved);
+        return previous == null ? resolved : (T) previous;
+    }
+
+    @NonNull
+    @SneakyThrows
+    private <T> T resolve(final @NonNull Resolver<T> resolver) {
+        return resolver.resolve();
+    }
+
+    /**
+     * Resolves a cached value, allowed to throw.
+     */
+    @FunctionalInterface
+    private interface Resolver<T> {
+
+        T resolve() throws Throwable;
+
+    }
+
+    /**
+     * A member, along with what was resolved from it.
+     */
+    private static final class Key {
+
+        private final Member member;
+        private final Object kind;
+
+        private Key(final @NonNull Member member, final @NonNull Object kind) {
+            this.member = member;
+            this.kind = kind;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof Key))
+                return false;
+            val key = (Key) other;
+            return member.equals(key.member) && kind.equals(key.kind);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * member.hashCode() + kind.hashCode();
+        }
+
+    }
+
+}
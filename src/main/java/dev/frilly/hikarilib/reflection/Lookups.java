@@ -0,0 +1,121 @@
+package dev.frilly.hikarilib.reflection;
+
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.experimental.UtilityClass;
+import lombok.val;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+/**
+ * Creates lookups with full access to any class.
+ * <p>
+ * On Java 8, lookups are created through the private constructor of {@link MethodHandles.Lookup}.
+ * Later versions use {@code MethodHandles.privateLookupIn}, but since Java 14, the lookups it returns
+ * for classes of other modules, such as classes of other class loaders, can't be used to spin
+ * lambdas. For those, a tiny class is defined in the package of the class, which hands out its own
+ * lookup, from which a lookup with full access is then created.
+ */
+@UtilityClass
+final class Lookups {
+
+    private final String SUFFIX = "$$HikariLookup";
+    private final Object LOCK = new Object();
+
+    // The modes of a lookup with full access on Java 8, and the module mode, added in Java 9.
+    private final int ALL_MODES = MethodHandles.Lookup.PUBLIC | MethodHandles.Lookup.PRIVATE
+            | MethodHandles.Lookup.PROTECTED | MethodHandles.Lookup.PACKAGE;
+    private final int MODULE = MethodHandles.Lookup.PACKAGE << 1;
+
+    private final Method privateLookupIn = findPrivateLookupIn();
+    private final Constructor<MethodHandles.Lookup> constructor = privateLookupIn == null ? findConstructor() : null;
+
+    @Nullable
+    private Method findPrivateLookupIn() {
+        try {
+            return MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+        } catch (NoSuchMethodException exception) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private Constructor<MethodHandles.Lookup> findConstructor() {
+        try {
+            val constructor = MethodHandles.Lookup.class.getDeclaredConstructor(Class.class, int.class);
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (Exception exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets a lookup with full access to a class.
+     *
+     * @param type the class
+     * @return the lookup
+     */
+    @NonNull
+    @SneakyThrows
+    MethodHandles.Lookup of(final @NonNull Class<?> type) {
+        if (privateLookupIn == null)
+            return constructor != null ? constructor.newInstance(type, ALL_MODES) : MethodHandles.lookup().in(type);
+
+        val lookup = (MethodHandles.Lookup) privateLookupIn.invoke(null, type, MethodHandles.lookup());
+        if ((lookup.lookupModes() & MODULE) != 0 || type.getClassLoader() == null)
+            return lookup;
+        return (MethodHandles.Lookup) privateLookupIn.invoke(null, type, local(type, lookup));
+    }
+
+    /**
+     * Gets the lookup of the class handing out lookups in the package of a class, defining it first
+     * if needed.
+     */
+    @NonNull
+    @SneakyThrows
+    private MethodHandles.Lookup local(final @NonNull Class<?> type, final @NonNull MethodHandles.Lookup lookup) {
+        val dot = type.getName().lastIndexOf('.');
+        val name = (dot == -1 ? "" : type.getName().substring(0, dot + 1)) + SUFFIX;
+
+        Class<?> local;
+        synchronized (LOCK) {
+            try {
+                local = Class.forName(name, false, type.getClassLoader());
+            } catch (ClassNotFoundException exception) {
+                val defineClass = MethodHandles.Lookup.class.getMethod("defineClass", byte[].class);
+                local = (Class<?>) defineClass.invoke(lookup, (Object) bytecode(name));
+            }
+        }
+        val method = local.getDeclaredMethod("lookup");
+        method.setAccessible(true);
+        return (MethodHandles.Lookup) method.invoke(null);
+    }
+
+    @NonNull
+    private byte[] bytecode(final @NonNull String name) {
+        val writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        // Package-private, so only the package itself, or reflection, can get to its lookup.
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_FINAL | Opcodes.ACC_SUPER | Opcodes.ACC_SYNTHETIC,
+                name.replace('.', '/'), null, "java/lang/Object", null);
+
+        val lookup = Type.getDescriptor(MethodHandles.Lookup.class);
+        val method = writer.visitMethod(Opcodes.ACC_STATIC, "lookup", "()" + lookup, null, null);
+        method.visitCode();
+        method.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/invoke/MethodHandles", "lookup", "()" + lookup,
+                false);
+        method.visitInsn(Opcodes.ARETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+}
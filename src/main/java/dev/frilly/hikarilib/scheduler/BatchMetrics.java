@@ -0,0 +1,64 @@
+package dev.frilly.hikarilib.scheduler;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+
+/**
+ * A snapshot of the metrics of a {@link BatchScheduler}.
+ */
+@RequiredArgsConstructor(staticName = "of")
+@Value
+@Getter
+public class BatchMetrics {
+
+    /**
+     * -- GETTER --
+     * Gets the number of ticks that drained the queue.
+     */
+    long ticks;
+
+    /**
+     * -- GETTER --
+     * Gets the number of tasks that ran, including the ones that threw.
+     */
+    long executed;
+
+    /**
+     * -- GETTER --
+     * Gets the number of tasks that threw.
+     */
+    long failed;
+
+    /**
+     * -- GETTER --
+     * Gets the number of tasks waiting, of every priority.
+     */
+    int queueDepth;
+
+    /**
+     * -- GETTER --
+     * Gets the number of ticks that ran out of budget, carrying tasks over to the next tick.
+     */
+    long overruns;
+
+    /**
+     * -- GETTER --
+     * Gets how long the last tick took, in nanoseconds.
+     */
+    long lastTickNanos;
+
+    /**
+     * -- GETTER --
+     * Gets how long the longest tick took, in nanoseconds.
+     */
+    long maxTickNanos;
+
+    /**
+     * -- GETTER --
+     * Gets the most a tick went past its budget by, in nanoseconds, since a running task can't be cut
+     * short.
+     */
+    long maxOverrunNanos;
+
+}
@@ -0,0 +1,341 @@
+package dev.frilly.hikarilib.scheduler;
+
+import dev.frilly.hikarilib.misc.Tasks;
+import lombok.NonNull;
+import lombok.val;
+import lombok.var;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs many small synchronous tasks from a single repeating task, instead of scheduling each of them
+ * with Bukkit.
+ * <p>
+ * Tasks can be submitted from any thread, into lock-free queues, one per {@link TaskPriority}. Every
+ * tick, the queues are drained, highest priority first, until they are empty or the time budget, 5
+ * milliseconds by default, runs out. Whatever is left is carried over to the next tick, so bursts of
+ * work are spread over several ticks instead of causing a spike. Every priority with waiting tasks
+ * runs at least one of them per tick, so lower priorities never starve.
+ * <pre>{@code
+ * BatchScheduler scheduler = BatchScheduler.of(plugin);
+ * scheduler.submit(() -> block.setType(Material.STONE));
+ * scheduler.submit(() -> menu.refresh(), TaskPriority.LOW);
+ * }</pre>
+ * Tasks that throw are logged, and don't stop the others.
+ */
+public final class BatchScheduler {
+
+    /**
+     * The default time budget per tick, in nanoseconds.
+     */
+    public static final long DEFAULT_BUDGET = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private static final TaskPriority[] PRIORITIES = TaskPriority.values();
+    private static final Map<JavaPlugin, BatchScheduler> SCHEDULERS = new ConcurrentHashMap<>();
+
+    private final ConcurrentLinkedQueue<Runnable>[] queues;
+    private final AtomicInteger[] depths;
+    private final LongSupplier clock;
+    private volatile long budget;
+    private volatile Logger logger = Logger.getLogger(BatchScheduler.class.getName());
+    private volatile JavaPlugin plugin;
+    private volatile BukkitTask task;
+    private volatile DisableListener disableListener;
+    private volatile boolean closed = false;
+
+    // Only written by the thread ticking the scheduler.
+    private volatile long ticks;
+    private volatile long executed;
+    private volatile long failed;
+    private volatile long overruns;
+    private volatile long lastTickNanos;
+    private volatile long maxTickNanos;
+    private volatile long maxOverrunNanos;
+
+    @SuppressWarnings("unchecked")
+    private BatchScheduler(final long budget, final @NonNull LongSupplier clock) {
+        this.queues = new ConcurrentLinkedQueue[PRIORITIES.length];
+        this.depths = new AtomicInteger[PRIORITIES.length];
+        for (var i = 0; i < PRIORITIES.length; i++) {
+            queues[i] = new ConcurrentLinkedQueue<>();
+            depths[i] = new AtomicInteger();
+        }
+        this.clock = clock;
+        setBudget(budget, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the scheduler shared by every batched task of a plugin, starting it if needed.
+     *
+     * @param plugin the plugin
+     * @return the scheduler
+     */
+    @NonNull
+    public static BatchScheduler of(final @NonNull JavaPlugin plugin) {
+        val scheduler = SCHEDULERS.get(plugin);
+        if (scheduler != null && scheduler.isRunning())
+            return scheduler;
+        // Bukkit cancels every task of a plugin when it is disabled, so stale schedulers are replaced,
+        // and what they still had waiting moves to the new one. Stopping removes the stale one from the
+        // map, so this can't happen while computing the new one.
+        if (scheduler != null)
+            scheduler.stop();
+        val current = SCHEDULERS.compute(plugin, (key, existing) -> existing != null && existing.isRunning()
+                ? existing
+                : create(DEFAULT_BUDGET, TimeUnit.NANOSECONDS).start(key));
+        if (scheduler != null)
+            scheduler.drainTo(current);
+        return current;
+    }
+
+    /**
+     * Creates a scheduler that is not started, to be started with {@link #start(JavaPlugin)}, or ticked
+     * manually with {@link #tick()}.
+     *
+     * @param budget the time budget per tick
+     * @param unit   the unit of the budget
+     * @return the scheduler
+     */
+    @NonNull
+    public static BatchScheduler create(final long budget, final @NonNull TimeUnit unit) {
+        return create(budget, unit, System::nanoTime);
+    }
+
+    /**
+     * Creates a scheduler that is not started, measuring time with a clock.
+     *
+     * @param budget the time budget per tick
+     * @param unit   the unit of the budget
+     * @param clock  the clock, giving the current time in nanoseconds
+     * @return the scheduler
+     */
+    @NonNull
+    public static BatchScheduler create(final long budget, final @NonNull TimeUnit unit,
+                                        final @NonNull LongSupplier clock) {
+        return new BatchScheduler(unit.toNanos(budget), clock);
+    }
+
+    /**
+     * Starts ticking the scheduler every tick, on the main thread of a plugin. The scheduler is
+     * closed once the plugin is disabled.
+     *
+     * @param plugin the plugin
+     * @return this scheduler
+     */
+    @NonNull
+    public BatchScheduler start(final @NonNull JavaPlugin plugin) {
+        if (closed)
+            throw new IllegalStateException("scheduler is closed");
+        if (task != null)
+            throw new IllegalStateException("scheduler is already started");
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.task = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1, 1);
+        this.disableListener = DisableListener.register(plugin, this::close);
+        return this;
+    }
+
+    /**
+     * Checks whether the scheduler is started, and still scheduled with Bukkit.
+     *
+     * @return whether it is running
+     */
+    public boolean isRunning() {
+        val task = this.task;
+        return !closed && task != null && Bukkit.getScheduler().isQueued(task.getTaskId());
+    }
+
+    /**
+     * Sets the time budget per tick.
+     *
+     * @param budget the budget, at least 0
+     * @param unit   the unit of the budget
+     */
+    public void setBudget(final long budget, final @NonNull TimeUnit unit) {
+        if (budget < 0)
+            throw new IllegalArgumentException("budget can't be negative");
+        this.budget = unit.toNanos(budget);
+    }
+
+    /**
+     * Gets the time budget per tick.
+     *
+     * @param unit the unit to get the budget in
+     * @return the budget
+     */
+    public long getBudget(final @NonNull TimeUnit unit) {
+        return unit.convert(budget, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Submits a task with the normal priority.
+     *
+     * @param task the task
+     */
+    public void submit(final @NonNull Runnable task) {
+        submit(task, TaskPriority.NORMAL);
+    }
+
+    /**
+     * Submits a task, to run on a later tick.
+     *
+     * @param task     the task
+     * @param priority the priority
+     */
+    public void submit(final @NonNull Runnable task, final @NonNull TaskPriority priority) {
+        if (closed)
+            throw new IllegalStateException("scheduler is closed");
+        val index = priority.ordinal();
+        // Counted before being queued, so that depths are never below what is actually queued.
+        depths[index].incrementAndGet();
+        queues[index].offer(task);
+    }
+
+    /**
+     * Gets the number of tasks waiting.
+     *
+     * @return the number of tasks
+     */
+    public int getQueueDepth() {
+        var depth = 0;
+        for (val counter : depths)
+            depth += counter.get();
+        return depth;
+    }
+
+    /**
+     * Gets the number of tasks of a priority waiting.
+     *
+     * @param priority the priority
+     * @return the number of tasks
+     */
+    public int getQueueDepth(final @NonNull TaskPriority priority) {
+        return depths[priority.ordinal()].get();
+    }
+
+    /**
+     * Gets a snapshot of the metrics of this scheduler.
+     *
+     * @return the metrics
+     */
+    @NonNull
+    public BatchMetrics getMetrics() {
+        return BatchMetrics.of(ticks, executed, failed, getQueueDepth(), overruns, lastTickNanos, maxTickNanos,
+                maxOverrunNanos);
+    }
+
+    /**
+     * Runs waiting tasks until the queues are empty or the budget runs out. This is called every tick
+     * once started, and must only be called from one thread at a time.
+     */
+    public void tick() {
+        val start = clock.getAsLong();
+        val deadline = start + budget;
+
+        for (var i = 0; i < PRIORITIES.length; i++)
+            runNext(i);
+
+        var exhausted = false;
+        for (var i = 0; i < PRIORITIES.length && !exhausted; i++) {
+            while (true) {
+                if (clock.getAsLong() - deadline >= 0) {
+                    exhausted = true;
+                    break;
+                }
+                if (!runNext(i))
+                    break;
+            }
+        }
+
+        val end = clock.getAsLong();
+        val duration = end - start;
+        ticks++;
+        lastTickNanos = duration;
+        if (duration > maxTickNanos)
+            maxTickNanos = duration;
+        if (exhausted && getQueueDepth() > 0) {
+            overruns++;
+            if (end - deadline > maxOverrunNanos)
+                maxOverrunNanos = end - deadline;
+        }
+    }
+
+    private boolean runNext(final int index) {
+        val next = queues[index].poll();
+        if (next == null)
+            return false;
+        depths[index].decrementAndGet();
+        try {
+            next.run();
+        } catch (Throwable throwable) {
+            failed++;
+            logger.log(Level.WARNING, "A batched task threw an exception", throwable);
+        }
+        executed++;
+        return true;
+    }
+
+    /**
+     * Stops the scheduler, so that it can't be submitted to anymore.
+     * <p>
+     * Waiting tasks that are {@link Future}s, such as those of {@link Tasks#callSync}, are cancelled, so
+     * that nothing waits on them forever.
+     *
+     * @return the tasks that were still waiting, highest priority first
+     */
+    @NonNull
+    public List<Runnable> close() {
+        stop();
+        val remaining = new ArrayList<Runnable>();
+        for (var i = 0; i < PRIORITIES.length; i++) {
+            Runnable next;
+            while ((next = queues[i].poll()) != null) {
+                depths[i].decrementAndGet();
+                if (next instanceof Future)
+                    ((Future<?>) next).cancel(false);
+                remaining.add(next);
+            }
+        }
+        return remaining;
+    }
+
+    private void stop() {
+        closed = true;
+        val task = this.task;
+        if (task != null)
+            task.cancel();
+        val disableListener = this.disableListener;
+        if (disableListener != null)
+            disableListener.unregister();
+        val plugin = this.plugin;
+        if (plugin != null)
+            SCHEDULERS.remove(plugin, this);
+    }
+
+    /**
+     * Moves the waiting tasks of this stopped scheduler to another one, keeping their priorities.
+     */
+    private void drainTo(final @NonNull BatchScheduler target) {
+        for (var i = 0; i < PRIORITIES.length; i++) {
+            Runnable next;
+            while ((next = queues[i].poll()) != null) {
+                depths[i].decrementAndGet();
+                target.submit(next, PRIORITIES[i]);
+            }
+        }
+    }
+
+}
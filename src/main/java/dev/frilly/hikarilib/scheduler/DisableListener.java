@@ -0,0 +1,52 @@
+package dev.frilly.hikarilib.scheduler;
+
+import lombok.NonNull;
+import lombok.val;
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.plugin.java.JavaPlugin;
+
+/**
+ * Runs an action once a plugin is disabled, so that what was started for it can let go of it.
+ */
+final class DisableListener implements Listener {
+
+    private final JavaPlugin plugin;
+    private final Runnable action;
+
+    private DisableListener(final @NonNull JavaPlugin plugin, final @NonNull Runnable action) {
+        this.plugin = plugin;
+        this.action = action;
+    }
+
+    /**
+     * Registers an action to run once a plugin is disabled.
+     *
+     * @param plugin the plugin
+     * @param action the action
+     * @return the listener, to unregister it with
+     */
+    @NonNull
+    static DisableListener register(final @NonNull JavaPlugin plugin, final @NonNull Runnable action) {
+        val listener = new DisableListener(plugin, action);
+        Bukkit.getPluginManager().registerEvents(listener, plugin);
+        return listener;
+    }
+
+    @EventHandler
+    public void onDisable(final @NonNull PluginDisableEvent event) {
+        if (event.getPlugin() == plugin)
+            action.run();
+    }
+
+    /**
+     * Stops listening, without running the action.
+     */
+    void unregister() {
+        HandlerList.unregisterAll(this);
+    }
+
+}
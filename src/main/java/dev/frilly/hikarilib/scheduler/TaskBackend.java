@@ -0,0 +1,18 @@
+package dev.frilly.hikarilib.scheduler;
+
+/**
+ * The ways delayed tasks of {@link dev.frilly.hikarilib.misc.Tasks} can be scheduled.
+ */
+public enum TaskBackend {
+
+    /**
+     * Every task is scheduled with Bukkit, on its own.
+     */
+    BUKKIT,
+
+    /**
+     * Every task is scheduled on the {@link TimingWheel} of its plugin.
+     */
+    TIMING_WHEEL
+
+}
@@ -0,0 +1,10 @@
+package dev.frilly.hikarilib.scheduler;
+
+/**
+ * The priorities of batched tasks. Higher priorities run first within a tick.
+ */
+public enum TaskPriority {
+    HIGH,
+    NORMAL,
+    LOW
+}
@@ -0,0 +1,91 @@
+package dev.frilly.hikarilib.scheduler;
+
+import lombok.NonNull;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A task scheduled on a {@link TimingWheel}, which can be cancelled until it runs.
+ */
+public final class Timeout {
+
+    private static final int WAITING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+    final TimingWheel wheel;
+    final Runnable task;
+    final long deadline;
+    final boolean async;
+    private volatile int state = WAITING;
+
+    // The slot this timeout is linked into, only touched by the thread ticking the wheel.
+    TimingWheel.Slot slot;
+    Timeout previous;
+    Timeout next;
+
+    Timeout(final @NonNull TimingWheel wheel, final @NonNull Runnable task, final long deadline, final boolean async) {
+        this.wheel = wheel;
+        this.task = task;
+        this.deadline = deadline;
+        this.async = async;
+    }
+
+    /**
+     * Cancels the task, if it didn't run yet.
+     *
+     * @return whether it was cancelled by this call
+     */
+    public boolean cancel() {
+        if (!STATE.compareAndSet(this, WAITING, CANCELLED))
+            return false;
+        wheel.cancelled(this);
+        return true;
+    }
+
+    /**
+     * Marks the timeout as run, if it wasn't cancelled.
+     */
+    boolean expire() {
+        return STATE.compareAndSet(this, WAITING, EXPIRED);
+    }
+
+    /**
+     * Checks whether the task was cancelled.
+     *
+     * @return whether it was cancelled
+     */
+    public boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    /**
+     * Checks whether the task ran, or was handed to the asynchronous executor.
+     *
+     * @return whether it ran
+     */
+    public boolean isExpired() {
+        return state == EXPIRED;
+    }
+
+    /**
+     * Gets the tick of the wheel the task runs on.
+     *
+     * @return the tick
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Checks whether the task runs asynchronously.
+     *
+     * @return whether it runs asynchronously
+     */
+    public boolean isAsync() {
+        return async;
+    }
+
+}
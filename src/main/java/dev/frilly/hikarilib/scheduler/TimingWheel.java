@@ -0,0 +1,368 @@
+package dev.frilly.hikarilib.scheduler;
+
+import dev.frilly.hikarilib.misc.Tasks;
+import lombok.NonNull;
+import lombok.val;
+import lombok.var;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs delayed tasks from a single repeating task, through a hierarchical timing wheel, instead of
+ * scheduling each of them with Bukkit.
+ * <p>
+ * The wheel has 4 levels of 64 slots each. The first level holds the tasks due within 64 ticks, one
+ * slot per tick, and every next level holds 64 times longer delays, which are moved down a level
+ * once they get close. Scheduling and cancelling only link or unlink a task from a slot, so they
+ * cost the same no matter how many tasks are waiting, which suits tens of thousands of cooldowns.
+ * Delays past 4 levels, around 9 days, are supported as well.
+ * <pre>{@code
+ * TimingWheel wheel = TimingWheel.of(plugin);
+ * Timeout timeout = wheel.schedule(() -> cooldowns.remove(uuid), 200);
+ * timeout.cancel();
+ * }</pre>
+ * Tasks can be scheduled and cancelled from any thread. Synchronous tasks run on the thread ticking
+ * the wheel, asynchronous ones are handed to an executor.
+ */
+public final class TimingWheel {
+
+    private static final int LEVELS = 4;
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    // The longest delay the wheel holds directly, longer ones are moved down when reached.
+    private static final long SPAN = 1L << (BITS * LEVELS);
+
+    private static final Map<JavaPlugin, TimingWheel> WHEELS = new ConcurrentHashMap<>();
+
+    private final Slot[][] slots = new Slot[LEVELS][SLOTS];
+    private final ConcurrentLinkedQueue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final Executor async;
+    private volatile long tick = 0;
+    private volatile Logger logger = Logger.getLogger(TimingWheel.class.getName());
+    private volatile JavaPlugin plugin;
+    private volatile BukkitTask task;
+    private volatile DisableListener disableListener;
+    private volatile boolean closed = false;
+
+    private TimingWheel(final @NonNull Executor async) {
+        this.async = async;
+        for (val level : slots) {
+            for (var i = 0; i < SLOTS; i++)
+                level[i] = new Slot();
+        }
+    }
+
+    /**
+     * Gets the wheel shared by every delayed task of a plugin, starting it if needed.
+     *
+     * @param plugin the plugin
+     * @return the wheel
+     */
+    @NonNull
+    public static TimingWheel of(final @NonNull JavaPlugin plugin) {
+        val wheel = WHEELS.get(plugin);
+        if (wheel != null && wheel.isRunning())
+            return wheel;
+        // A wheel whose task was cancelled is replaced. Closing removes it from the map, so this can't
+        // happen while computing the new one.
+        if (wheel != null)
+            wheel.close();
+        return WHEELS.compute(plugin, (key, existing) -> existing != null && existing.isRunning()
+                ? existing
+                : create().start(key));
+    }
+
+    /**
+     * Creates a wheel that is not started, running asynchronous tasks on {@link Tasks#async()}.
+     *
+     * @return the wheel
+     */
+    @NonNull
+    public static TimingWheel create() {
+        return new TimingWheel(Tasks.async());
+    }
+
+    /**
+     * Creates a wheel that is not started, running asynchronous tasks on an executor.
+     *
+     * @param async the executor for asynchronous tasks
+     * @return the wheel
+     */
+    @NonNull
+    public static TimingWheel create(final @NonNull Executor async) {
+        return new TimingWheel(async);
+    }
+
+    /**
+     * Starts ticking the wheel every tick, on the main thread of a plugin. The wheel is closed once the
+     * plugin is disabled.
+     *
+     * @param plugin the plugin
+     * @return this wheel
+     */
+    @NonNull
+    public TimingWheel start(final @NonNull JavaPlugin plugin) {
+        if (closed)
+            throw new IllegalStateException("wheel is closed");
+        if (task != null)
+            throw new IllegalStateException("wheel is already started");
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.task = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1, 1);
+        this.disableListener = DisableListener.register(plugin, this::close);
+        return this;
+    }
+
+    /**
+     * Checks whether the wheel is started, and still scheduled with Bukkit.
+     *
+     * @return whether it is running
+     */
+    public boolean isRunning() {
+        val task = this.task;
+        return !closed && task != null && Bukkit.getScheduler().isQueued(task.getTaskId());
+    }
+
+    /**
+     * Schedules a task to run synchronously, on the thread ticking the wheel.
+     *
+     * @param task  the task
+     * @param delay the delay in ticks, running on the next tick if less than 1
+     * @return the timeout, to cancel the task with
+     */
+    @NonNull
+    public Timeout schedule(final @NonNull Runnable task, final long delay) {
+        return schedule(task, delay, false);
+    }
+
+    /**
+     * Schedules a task to run asynchronously.
+     *
+     * @param task  the task
+     * @param delay the delay in ticks, running on the next tick if less than 1
+     * @return the timeout, to cancel the task with
+     */
+    @NonNull
+    public Timeout scheduleAsync(final @NonNull Runnable task, final long delay) {
+        return schedule(task, delay, true);
+    }
+
+    @NonNull
+    private Timeout schedule(final @NonNull Runnable task, final long delay, final boolean async) {
+        if (closed)
+            throw new IllegalStateException("wheel is closed");
+        val now = tick;
+        val deadline = delay >= Long.MAX_VALUE - now ? Long.MAX_VALUE : now + Math.max(1, delay);
+        val timeout = new Timeout(this, task, deadline, async);
+        size.incrementAndGet();
+        // Linked into its slot by the ticking thread, on the next tick.
+        scheduled.offer(timeout);
+        return timeout;
+    }
+
+    void cancelled(final @NonNull Timeout timeout) {
+        size.decrementAndGet();
+        cancelled.offer(timeout);
+    }
+
+    /**
+     * Gets the number of ticks the wheel went through.
+     *
+     * @return the current tick
+     */
+    public long getCurrentTick() {
+        return tick;
+    }
+
+    /**
+     * Gets the number of tasks waiting.
+     *
+     * @return the number of tasks
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Moves the wheel forward by one tick, running every task due. This is called every tick once
+     * started, and must only be called from one thread at a time.
+     */
+    public void tick() {
+        val now = tick + 1;
+        tick = now;
+
+        // Every 64 ticks, the next slot of the level above is moved down, and so on.
+        for (var level = 1; level < LEVELS; level++) {
+            if ((now & ((1L << (BITS * level)) - 1)) != 0)
+                break;
+            cascade(slots[level][(int) (now >>> (BITS * level)) & MASK], now);
+        }
+
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if (!timeout.isCancelled())
+                place(timeout, now);
+        }
+        while ((timeout = cancelled.poll()) != null)
+            unlink(timeout);
+
+        var current = slots[0][(int) now & MASK].detach();
+        while (current != null) {
+            val next = current.next;
+            current.next = null;
+            // Slots of the first level only hold timeouts due now, anything else is placed again.
+            if (current.deadline > now && !current.isCancelled())
+                place(current, now);
+            else if (current.deadline <= now && current.expire())
+                run(current);
+            current = next;
+        }
+    }
+
+    private void cascade(final @NonNull Slot slot, final long now) {
+        var current = slot.detach();
+        while (current != null) {
+            val next = current.next;
+            current.next = null;
+            if (!current.isCancelled())
+                place(current, now);
+            current = next;
+        }
+    }
+
+    private void place(final @NonNull Timeout timeout, final long now) {
+        val delta = timeout.deadline - now;
+        if (delta <= 0) {
+            slots[0][(int) now & MASK].link(timeout);
+            return;
+        }
+
+        for (var level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (BITS * (level + 1))) {
+                slots[level][(int) (timeout.deadline >>> (BITS * level)) & MASK].link(timeout);
+                return;
+            }
+        }
+
+        // Too far away, parked in the furthest slot, then placed again once it is reached.
+        val parked = now + SPAN - 1;
+        slots[LEVELS - 1][(int) (parked >>> (BITS * (LEVELS - 1))) & MASK].link(timeout);
+    }
+
+    private void unlink(final @NonNull Timeout timeout) {
+        val slot = timeout.slot;
+        if (slot != null)
+            slot.unlink(timeout);
+    }
+
+    private void run(final @NonNull Timeout timeout) {
+        size.decrementAndGet();
+        try {
+            if (timeout.async)
+                async.execute(timeout.task);
+            else
+                timeout.task.run();
+        } catch (Throwable throwable) {
+            logger.log(Level.WARNING, "A delayed task threw an exception", throwable);
+        }
+    }
+
+    /**
+     * Stops the wheel, so that nothing can be scheduled on it anymore.
+     *
+     * @return the tasks that were still waiting
+     */
+    @NonNull
+    public List<Runnable> close() {
+        closed = true;
+        val task = this.task;
+        if (task != null)
+            task.cancel();
+        val disableListener = this.disableListener;
+        if (disableListener != null)
+            disableListener.unregister();
+        val plugin = this.plugin;
+        if (plugin != null)
+            WHEELS.remove(plugin, this);
+
+        val remaining = new ArrayList<Runnable>();
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if (timeout.expire())
+                remaining.add(timeout.task);
+        }
+        for (val level : slots) {
+            for (val slot : level) {
+                var current = slot.detach();
+                while (current != null) {
+                    if (current.expire())
+                        remaining.add(current.task);
+                    current = current.next;
+                }
+            }
+        }
+        cancelled.clear();
+        size.set(0);
+        return remaining;
+    }
+
+    /**
+     * A doubly linked list of timeouts, so that any of them can be unlinked at once.
+     */
+    static final class Slot {
+
+        private Timeout head;
+
+        private void link(final @NonNull Timeout timeout) {
+            timeout.slot = this;
+            timeout.previous = null;
+            timeout.next = head;
+            if (head != null)
+                head.previous = timeout;
+            head = timeout;
+        }
+
+        private void unlink(final @NonNull Timeout timeout) {
+            if (timeout.previous != null)
+                timeout.previous.next = timeout.next;
+            else
+                head = timeout.next;
+            if (timeout.next != null)
+                timeout.next.previous = timeout.previous;
+            timeout.slot = null;
+            timeout.previous = null;
+            timeout.next = null;
+        }
+
+        /**
+         * Empties the slot, returning its first timeout, still linked to the next ones.
+         */
+        @Nullable
+        private Timeout detach() {
+            val first = head;
+            head = null;
+            for (var current = first; current != null; current = current.next) {
+                current.slot = null;
+                current.previous = null;
+            }
+            return first;
+        }
+
+    }
+
+}
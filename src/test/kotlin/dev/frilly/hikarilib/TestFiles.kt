@@ -0,0 +1,13 @@
+package dev.frilly.hikarilib
+
+import java.io.File
+
+/**
+ * Creates a temporary .properties file holding the provided text in UTF-8, deleted once the tests end.
+ */
+fun tempFile(text: String): File {
+    val file = File.createTempFile("hikari", ".properties")
+    file.deleteOnExit()
+    file.writeText(text, Charsets.UTF_8)
+    return file
+}
@@ -0,0 +1,101 @@
+package dev.frilly.hikarilib.config
+
+import dev.frilly.hikarilib.properties.PropertiesFile
+import dev.frilly.hikarilib.tempFile
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import java.io.File
+import java.time.Duration
+
+enum class Mode { FAST, SLOW }
+
+open class BaseSettings {
+    @JvmField
+    @ConfigKey("name")
+    var name: String = "unnamed"
+}
+
+@ConfigKey("settings")
+class Settings : BaseSettings() {
+    @JvmField
+    @ConfigKey
+    var max: Int = 1
+
+    @JvmField
+    @ConfigKey("max-long")
+    var maxLong: Long? = null
+
+    @JvmField
+    @ConfigKey
+    var enabled: Boolean = false
+
+    @JvmField
+    @ConfigKey
+    var names: List<String> = listOf()
+
+    @JvmField
+    @ConfigKey
+    var cooldown: Duration = Duration.ZERO
+
+    @JvmField
+    @ConfigKey
+    var mode: Mode = Mode.FAST
+
+    @ConfigKey
+    private var ratio: Double = 0.0
+
+    @JvmField
+    @ConfigKey
+    var missing: String = "default"
+
+    fun ratio() = ratio
+}
+
+class Invalid {
+    @JvmField
+    @ConfigKey
+    var file: File? = null
+}
+
+class ConfigBinderTest : FunSpec({
+
+    test("Binding fields") {
+        val file = PropertiesFile(
+            tempFile(
+                "name=server\nsettings.max=5\nsettings.max-long=7\nsettings.enabled=true\nsettings.names=a, b\n" +
+                        "settings.cooldown=1m30s\nsettings.mode=SLOW\nsettings.ratio=0.5\n"
+            )
+        )
+        val settings = ConfigBinder.bind(file, Settings())
+
+        settings.name shouldBe "server"
+        settings.max shouldBe 5
+        settings.maxLong shouldBe 7L
+        settings.enabled shouldBe true
+        settings.names shouldBe listOf("a", "b")
+        settings.cooldown shouldBe Duration.ofSeconds(90)
+        settings.mode shouldBe Mode.SLOW
+        settings.ratio() shouldBe 0.5
+        settings.missing shouldBe "default"
+    }
+
+    test("Binding after reloading") {
+        val text = tempFile("settings.max=5\n")
+        val file = PropertiesFile(text)
+        val settings = ConfigBinder.bind(file, Settings())
+        settings.max shouldBe 5
+
+        text.writeText("settings.max=10\n")
+        file.reload()
+        ConfigBinder.bind(file, settings)
+        settings.max shouldBe 10
+    }
+
+    test("Unsupported fields") {
+        shouldThrow<IllegalArgumentException> {
+            ConfigBinder.bind(PropertiesFile(tempFile("file=a\n")), Invalid())
+        }
+    }
+
+})
@@ -0,0 +1,43 @@
+package dev.frilly.hikarilib.index
+
+import dev.frilly.hikarilib.config.ConfigKey
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.collections.shouldContain
+import io.kotest.matchers.shouldBe
+import java.io.File
+import java.nio.file.Files
+
+@ConfigKey("scanned")
+class ScannedFixture {
+    @JvmField
+    @ConfigKey
+    var max: Int = 1
+}
+
+class AnnotationIndexTest : FunSpec({
+
+    test("Reading an index") {
+        val directory = Files.createTempDirectory("hikari").toFile()
+        directory.deleteOnExit()
+        val index = File(directory, AnnotationIndex.INDEX)
+        index.parentFile.mkdirs()
+        index.writeText("dev.frilly.hikarilib.config.ConfigKey\n a.Foo\n a.Foo#max\n a.Bar#set(I)V\n")
+
+        val loaded = AnnotationIndex.of(directory)
+        loaded.isIndexed shouldBe true
+        loaded.getTypes(ConfigKey::class.java) shouldBe setOf("a.Foo")
+        loaded.getMembers(ConfigKey::class.java) shouldBe setOf("a.Foo#max", "a.Bar#set(I)V")
+        loaded.getOwners(ConfigKey::class.java) shouldBe setOf("a.Foo", "a.Bar")
+        loaded.getEntries(Indexed::class.java) shouldBe setOf()
+    }
+
+    test("Scanning without an index") {
+        val scanned = AnnotationIndex.of(ScannedFixture::class.java)
+        scanned.isIndexed shouldBe false
+        scanned.getTypes(ConfigKey::class.java) shouldContain ScannedFixture::class.java.name
+        scanned.getMembers(ConfigKey::class.java) shouldContain ScannedFixture::class.java.name + "#max"
+        scanned.getClasses(ConfigKey::class.java, ScannedFixture::class.java.classLoader) shouldContain
+                ScannedFixture::class.java
+    }
+
+})
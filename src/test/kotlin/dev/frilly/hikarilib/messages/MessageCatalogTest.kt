@@ -0,0 +1,54 @@
+package dev.frilly.hikarilib.messages
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.maps.shouldContainKey
+import io.kotest.matchers.shouldBe
+import java.nio.file.Files
+
+class MessageCatalogTest : FunSpec({
+
+    fun directory(vararg files: Pair<String, String>) = Files.createTempDirectory("hikari").also { dir ->
+        for ((name, text) in files)
+            dir.resolve(name).toFile().writeText(text)
+    }
+
+    test("Colorized and formatted") {
+        val catalog = MessageCatalog.load(directory("en_us.properties" to "greet=&aHello %player%!\n"), "en_US")
+
+        catalog.format(null, "greet", "player", "Steve") shouldBe "§aHello Steve!"
+        catalog.format(null, "greet") shouldBe "§aHello %player%!"
+        catalog.format(null, "greet") { name: String -> name.uppercase() } shouldBe "§aHello PLAYER!"
+        catalog.format(null, "missing") shouldBe "missing"
+        catalog.contains("greet") shouldBe true
+    }
+
+    test("Fallback chain") {
+        val catalog = MessageCatalog.load(directory(
+            "en_us.properties" to "a=A\nb=B\nc=C\n",
+            "pt.properties" to "b=PT B\nc=PT C\n",
+            "pt_br.properties" to "c=BR C\n",
+        ), "en_us")
+
+        catalog.getLocales() shouldBe setOf("en_us", "pt", "pt_br")
+        catalog.format("pt-BR", "a") shouldBe "A"
+        catalog.format("pt_BR", "b") shouldBe "PT B"
+        catalog.format("pt_br", "c") shouldBe "BR C"
+        catalog.format("pt_pt", "c") shouldBe "PT C"
+        catalog.format("de_de", "c") shouldBe "C"
+    }
+
+    test("Reload swaps messages") {
+        val dir = directory("en_us.properties" to "a=Old\n", "fr.properties" to "a=Vieux\n")
+        val catalog = MessageCatalog.load(dir, "en_us")
+        catalog.format("fr", "a") shouldBe "Vieux"
+
+        dir.resolve("en_us.properties").toFile().writeText("a=New\n")
+        dir.resolve("fr.properties").toFile().writeBytes(byteArrayOf('a'.code.toByte(), '='.code.toByte(), 0xFF.toByte()))
+        val failures = catalog.reloadAsync().join()
+
+        failures shouldContainKey "fr"
+        catalog.format(null, "a") shouldBe "New"
+        catalog.format("fr", "a") shouldBe "Vieux"
+    }
+
+})
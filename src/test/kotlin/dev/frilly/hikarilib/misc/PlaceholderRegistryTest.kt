@@ -0,0 +1,48 @@
+package dev.frilly.hikarilib.misc
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+
+class PlaceholderRegistryTest : FunSpec({
+
+    test("Lazy providers") {
+        var calls = 0
+        val registry = PlaceholderRegistry.create<String> { 0L }
+        registry.register("expensive") { calls++ }
+        registry.register("name") { "Server" }
+
+        registry.render("Welcome to %name%", null) shouldBe "Welcome to Server"
+        calls shouldBe 0
+        registry.render("%missing% stays", null) shouldBe "%missing% stays"
+    }
+
+    test("Memoized per tick") {
+        var tick = 0L
+        var calls = 0
+        val registry = PlaceholderRegistry.create<String> { tick }
+        registry.register("count", { ++calls }, 2)
+
+        registry.render("%count% %count%", null) shouldBe "1 1"
+        registry.render("%count%", null) shouldBe "1"
+        tick = 1
+        registry.render("%count%", null) shouldBe "1"
+        tick = 2
+        registry.render("%count%", null) shouldBe "2"
+
+        registry.invalidate()
+        registry.render("%count%", null) shouldBe "3"
+    }
+
+    test("Per viewer") {
+        var calls = 0
+        val registry = PlaceholderRegistry.create<String> { 0L }
+        registry.registerPerViewer("greeting") { viewer: String -> calls++; "Hi $viewer" }
+
+        registry.render("%greeting%!", "Kazuha") shouldBe "Hi Kazuha!"
+        registry.render("%greeting%!", "Kazuha") shouldBe "Hi Kazuha!"
+        registry.render("%greeting%!", "Ayaka") shouldBe "Hi Ayaka!"
+        registry.render("%greeting%!", null) shouldBe "%greeting%!"
+        calls shouldBe 2
+    }
+
+})
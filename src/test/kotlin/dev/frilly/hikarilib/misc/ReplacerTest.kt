@@ -0,0 +1,38 @@
+package dev.frilly.hikarilib.misc
+
+import dev.frilly.hikarilib.collections.Pair
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+
+class ReplacerTest : FunSpec({
+
+    test("Replacing") {
+        val replacer = Replacer.of(mapOf("he" to "1", "she" to "2", "hers" to "3", "his" to "4"))
+        replacer.replace("ushers") shouldBe "u2rs"
+        replacer.replace("his hers") shouldBe "4 3"
+        replacer.size() shouldBe 4
+
+        val text = "nothing to see"
+        replacer.replace(text) shouldBeSameInstanceAs text
+    }
+
+    test("Longest match") {
+        val replacer = Replacer.of(Pair.of(":smile:", "☺"), Pair.of(":smile", "x"), Pair.of("smile:", "y"))
+        replacer.replace("a :smile: b :smile") shouldBe "a ☺ b x"
+    }
+
+    test("Placeholders") {
+        val replacer = Replacer.placeholders(Pair.of("name", "Kazuha"), Pair.of("coins", 5))
+        replacer.replace("%name% has %coins% coins, 100% sure") shouldBe "Kazuha has 5 coins, 100% sure"
+        replacer.replace("%name%") shouldBe Strings.replacePlaceholders("%name%", "name", "Kazuha")
+    }
+
+    test("Word filters") {
+        val filter = Replacer.builder().ignoreCase().wholeWords().add("heck", "****").build()
+        filter.replace("What the HECK, heckin") shouldBe "What the ****, heckin"
+        filter.matches("Heck!") shouldBe true
+        filter.matches("checkmate") shouldBe false
+    }
+
+})
@@ -4,6 +4,7 @@ import dev.frilly.hikarilib.collections.Pair
 import io.kotest.assertions.throwables.shouldThrow
 import io.kotest.core.spec.style.FunSpec
 import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
 
 class StringsTest : FunSpec({
 
@@ -35,6 +36,36 @@ class StringsTest : FunSpec({
         Strings.trimRight("  hello") shouldBe "  hello"
     }
 
+    test("Trim whitespaces like regular expressions") {
+        Strings.trimLeft("\t\n\u000B\u000C\r hello") shouldBe "hello"
+        Strings.trimRight("hello \t\n\u000B\u000C\r") shouldBe "hello"
+        Strings.trimLeft("\u00a0hello") shouldBe "\u00a0hello"
+        Strings.trimLeft("   ") shouldBe ""
+        Strings.trimRight("   ") shouldBe ""
+    }
+
+    test("Unchanged strings are not copied") {
+        val s = String(charArrayOf('h', 'e', 'l', 'l', 'o'))
+        Strings.trimLeft(s) shouldBeSameInstanceAs s
+        Strings.trimRight(s) shouldBeSameInstanceAs s
+        Strings.removePrefix(s, "x") shouldBeSameInstanceAs s
+        Strings.removeSuffix(s, "x") shouldBeSameInstanceAs s
+    }
+
+    test("CharSequence views") {
+        val builder = StringBuilder("  key = value  ")
+        val trimmed = Strings.trimRight(Strings.trimLeft(builder))
+        Strings.contentEquals(trimmed, "key = value") shouldBe true
+        StringBuilder().append(trimmed).toString() shouldBe "key = value"
+
+        Strings.contentEquals(Strings.removePrefix(trimmed, "key"), " = value") shouldBe true
+        Strings.contentEquals(Strings.removeSuffix(trimmed, "value"), "key = ") shouldBe true
+        Strings.removePrefix(trimmed, "value") shouldBeSameInstanceAs trimmed
+        Strings.removeSuffix(trimmed, "a longer suffix than it") shouldBeSameInstanceAs trimmed
+        Strings.trimLeft(trimmed) shouldBeSameInstanceAs trimmed
+        Strings.contentEquals("abc", "abd") shouldBe false
+    }
+
     test("Color String") {
         Strings.color("&aHello") shouldBe "\u00a7aHello"
         Strings.color("Hello") shouldBe "Hello"
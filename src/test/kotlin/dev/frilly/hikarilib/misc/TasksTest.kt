@@ -0,0 +1,69 @@
+package dev.frilly.hikarilib.misc
+
+import dev.frilly.hikarilib.scheduler.BatchScheduler
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import java.util.concurrent.CancellationException
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+
+class TasksTest : FunSpec({
+
+    test("Completions of a tick run in one batch") {
+        val scheduler = BatchScheduler.create(1, TimeUnit.NANOSECONDS) { 0L }
+        val sources = List(3) { CompletableFuture<Int>() }
+        val threads = mutableListOf<Thread>()
+        val stages = sources.map { source -> Tasks.thenSync(scheduler, source) { threads += Thread.currentThread(); it * 2 } }
+        val called = Tasks.callSync(scheduler) { threads += Thread.currentThread(); "called" }
+
+        sources.forEachIndexed { i, source -> source.complete(i) }
+        stages.any { it.isDone } shouldBe false
+        called.isDone shouldBe false
+        scheduler.getQueueDepth() shouldBe 4
+
+        scheduler.tick()
+        stages.map { it.getNow(null) } shouldBe listOf(0, 2, 4)
+        called.getNow(null) shouldBe "called"
+        threads.toSet() shouldBe setOf(Thread.currentThread())
+        scheduler.getMetrics().ticks shouldBe 1
+        scheduler.getMetrics().executed shouldBe 4
+    }
+
+    test("Exceptions propagate") {
+        val scheduler = BatchScheduler.create(1, TimeUnit.NANOSECONDS) { 0L }
+        val called = Tasks.callSync<String>(scheduler) { throw IllegalStateException("called") }
+        val applied = Tasks.thenSync<Int, Int>(scheduler, CompletableFuture.completedFuture(1)) {
+            throw IllegalStateException("applied")
+        }
+        val failed = CompletableFuture<Int>()
+        var ran = false
+        val skipped = Tasks.thenSync(scheduler, failed) { ran = true; it }
+        failed.completeExceptionally(IllegalStateException("failed"))
+
+        scheduler.tick()
+        shouldThrow<ExecutionException> { called.get() }.cause!!.message shouldBe "called"
+        shouldThrow<ExecutionException> { applied.get() }.cause!!.message shouldBe "applied"
+        shouldThrow<ExecutionException> { skipped.get() }.cause!!.message shouldBe "failed"
+        ran shouldBe false
+        scheduler.getMetrics().failed shouldBe 0
+    }
+
+    test("Closing cancels pending stages") {
+        val scheduler = BatchScheduler.create(1, TimeUnit.NANOSECONDS) { 0L }
+        val called = Tasks.callSync(scheduler) { "called" }
+        val applied = Tasks.thenSync(scheduler, CompletableFuture.completedFuture(1)) { it * 2 }
+        val source = CompletableFuture<Int>()
+        val later = Tasks.thenSync(scheduler, source) { it * 2 }
+
+        scheduler.close().size shouldBe 2
+        shouldThrow<CancellationException> { called.get() }
+        shouldThrow<CancellationException> { applied.get() }
+
+        // Closed schedulers don't take new stages either.
+        source.complete(1)
+        shouldThrow<ExecutionException> { later.get() }.cause!!::class shouldBe IllegalStateException::class
+    }
+
+})
@@ -0,0 +1,42 @@
+package dev.frilly.hikarilib.misc
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+
+class TemplateTest : FunSpec({
+
+    test("Parsing") {
+        val template = Template.of("100% of %player% has %coins% coins, %player%!")
+        template.names shouldBe listOf("player", "coins")
+        template.indexOf("coins") shouldBe 1
+        template.indexOf("missing") shouldBe -1
+        template.hasPlaceholders() shouldBe true
+        Template.of("No %placeholders here% %%").hasPlaceholders() shouldBe false
+    }
+
+    test("Placeholders don't overlap") {
+        val template = Template.of("50%off%player%")
+        template.names shouldBe listOf("off")
+        template.render(mapOf("player" to "Kazuha")) shouldBe "50%off%player%"
+        Strings.replacePlaceholders("50%off%player%", "player", "Kazuha") shouldBe "50%offKazuha"
+        Template.of("50% off %player%").render(mapOf("player" to "Kazuha")) shouldBe "50% off Kazuha"
+    }
+
+    test("Rendering") {
+        val template = Template.of("%player% has %coins% coins, %player%!")
+        template.render("Kazuha", 5) shouldBe "Kazuha has 5 coins, Kazuha!"
+        template.render(mapOf("coins" to 3)) shouldBe "%player% has 3 coins, %player%!"
+        template.render { name: String -> name.uppercase() } shouldBe "PLAYER has COINS coins, PLAYER!"
+        template.render() shouldBe "%player% has %coins% coins, %player%!"
+        template.renderTo(StringBuilder("> "), "A", 1).toString() shouldBe "> A has 1 coins, A!"
+    }
+
+    test("Nested rendering") {
+        val inner = Template.of("[%rank%]")
+        val outer = Template.of("%prefix% %player%")
+        outer.render { name: String ->
+            if (name == "prefix") inner.render("Admin") else "Kazuha"
+        } shouldBe "[Admin] Kazuha"
+    }
+
+})
@@ -0,0 +1,37 @@
+package dev.frilly.hikarilib.properties
+
+import dev.frilly.hikarilib.tempFile
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+
+class LayeredPropertiesTest : FunSpec({
+
+    test("Resolution order") {
+        val world = PropertiesFile(tempFile("a=world\n"))
+        val server = PropertiesFile(tempFile("a=server\nb=server\n"))
+        val defaults = PropertiesFile(tempFile("a=default\nb=default\nc=default\n"))
+        val layered = LayeredProperties.of(world, server, defaults)
+
+        layered.getRaw("a").value shouldBe "world"
+        layered.getRaw("b").value shouldBe "server"
+        layered.getRaw("c").value shouldBe "default"
+        layered.get("d").isEmpty shouldBe true
+    }
+
+    test("Layer changes") {
+        val worldFile = tempFile("a=world\n")
+        val world = PropertiesFile(worldFile)
+        val server = PropertiesFile(tempFile("a=server\nb=server\n"))
+        val layered = LayeredProperties.of(world, server)
+
+        world.addKey("b", "world", listOf())
+        layered.getRaw("b").value shouldBe "world"
+
+        worldFile.writeText("c=world\n")
+        world.reload()
+        layered.getRaw("a").value shouldBe "server"
+        layered.getRaw("b").value shouldBe "server"
+        layered.getRaw("c").value shouldBe "world"
+    }
+
+})
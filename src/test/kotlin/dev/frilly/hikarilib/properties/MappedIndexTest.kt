@@ -0,0 +1,59 @@
+package dev.frilly.hikarilib.properties
+
+import dev.frilly.hikarilib.tempFile
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import java.io.File
+import java.io.StringReader
+
+class MappedIndexTest : FunSpec({
+
+    val text = "# Comment\n" +
+            "simple=value\n" +
+            "  indented : spaced value  \n" +
+            "multi = first \\\n    second\n" +
+            "escaped\\ key=héllo\n" +
+            "\n" +
+            "! Other comment\n" +
+            "duplicate=old\n" +
+            "duplicate=new\n" +
+            "last=no line break"
+
+    test("Decodes like the reader") {
+        val keys = mutableListOf<PropertyKey>()
+        MappedIndex.map(tempFile(text)).forEach { keys += it }
+        keys shouldBe PropertiesReader.read(StringReader(text))
+    }
+
+    test("Lookups") {
+        val index = MappedIndex.map(tempFile(text))
+
+        index.lookup("simple")?.value shouldBe "value"
+        index.lookup("simple")?.comments shouldBe listOf("# Comment")
+        index.lookup("indented")?.value shouldBe "spaced value  "
+        index.lookup("multi")?.value shouldBe "first \nsecond"
+        index.lookup("escaped key")?.value shouldBe "héllo"
+        index.lookup("duplicate")?.value shouldBe "new"
+        index.lookup("last")?.value shouldBe "no line break"
+        index.lookup("missing") shouldBe null
+    }
+
+    test("Missing files are empty") {
+        val index = MappedIndex.map(File("missing.properties"))
+        index.lookup("simple") shouldBe null
+        var count = 0
+        index.forEach { count++ }
+        count shouldBe 0
+    }
+
+    test("Mapped files") {
+        val props = PropertiesFile.mapped(tempFile("settings.max=10\nmessages.info=Info\n" +
+                "messages.error.a=A\nmessages.error.b=B\n"))
+
+        props.get("settings.max").get().value shouldBe "10"
+        props.get("messages.info").get().value shouldBe "Info"
+        props.get("not-exists").isEmpty shouldBe true
+        props.subtree("messages.error").size shouldBe 2
+    }
+
+})
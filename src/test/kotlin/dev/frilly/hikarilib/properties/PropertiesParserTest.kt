@@ -0,0 +1,45 @@
+package dev.frilly.hikarilib.properties
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import java.io.StringReader
+
+class PropertiesParserTest : FunSpec({
+
+    fun parse(text: String) = PropertiesReader.read(StringReader(text)).associateBy { it.key }
+
+    test("Delimiters") {
+        val map = parse("a=1\nb = 2\nc: 3\nd 4\ne  = 5\n")
+        map["a"]?.value shouldBe "1"
+        map["b"]?.value shouldBe "2"
+        map["c"]?.value shouldBe "3"
+        map["d"]?.value shouldBe "4"
+        map["e"]?.value shouldBe "= 5"
+    }
+
+    test("Escapes") {
+        val map = parse("a-we\\:ird\\=key\\ name=va\\\\lue \\:\n")
+        map["a-we:ird=key name"]?.value shouldBe "va\\lue \\:"
+    }
+
+    test("Comments") {
+        val map = parse("# first\n! second\nkey=value\n\nother=value\n# dangling")
+        map["key"]?.comments shouldBe listOf("# first", "! second")
+        map["other"]?.comments?.isEmpty() shouldBe true
+        map.size shouldBe 2
+    }
+
+    test("Multi-line values") {
+        val map = parse("facebook = \\\n  facebook.com \\\\\\\\\nnext=a \\\n   b \\\n c\r\nlast=x")
+        map["facebook"]?.value shouldBe "\nfacebook.com \\\\"
+        map["next"]?.value shouldBe "a \nb \nc"
+        map["last"]?.value shouldBe "x"
+    }
+
+    test("Streaming callback") {
+        val keys = mutableListOf<String>()
+        PropertiesReader.read(StringReader("one=1\ntwo=2\nthree=3")) { keys.add(it.key) }
+        keys shouldBe listOf("one", "two", "three")
+    }
+
+})
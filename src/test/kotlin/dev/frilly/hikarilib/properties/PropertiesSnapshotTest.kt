@@ -0,0 +1,97 @@
+package dev.frilly.hikarilib.properties
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import java.io.File
+import java.nio.file.Files
+import java.nio.file.Path
+
+class PropertiesSnapshotTest : FunSpec({
+
+    fun tempDir(): File {
+        val directory = Files.createTempDirectory("hikari").toFile()
+        directory.deleteOnExit()
+        return directory
+    }
+
+    fun source(directory: File, text: String): File {
+        val file = File(directory, "messages.properties")
+        file.writeText(text, Charsets.UTF_8)
+        return file
+    }
+
+    // Rewrites bytes of the snapshot in place, so a load can tell whether it read the snapshot.
+    fun tamper(snapshot: Path, from: String, to: String) {
+        val bytes = String(Files.readAllBytes(snapshot), Charsets.ISO_8859_1)
+        Files.write(snapshot, bytes.replace(from, to).toByteArray(Charsets.ISO_8859_1))
+    }
+
+    val text = "# Grüße\n# 二行目\ngreeting=Hallo, Welt ✓\n\nempty=\nplain=value\n"
+
+    test("Round trips comments and non-ASCII text") {
+        val directory = tempDir()
+        val file = source(directory, text)
+        val parsed = PropertiesFile(file).keys().toList()
+
+        PropertiesFile.cached(file, directory).keys().toList() shouldBe parsed
+        Files.isRegularFile(PropertiesSnapshot.snapshotOf(file, directory)) shouldBe true
+        PropertiesFile.cached(file, directory).keys().toList() shouldBe parsed
+        PropertiesFile.cached(file, directory).getRaw("greeting").value shouldBe "Hallo, Welt ✓"
+    }
+
+    test("Reuses the snapshot of an unchanged file") {
+        val directory = tempDir()
+        val file = source(directory, text)
+        PropertiesFile.cached(file, directory)
+
+        tamper(PropertiesSnapshot.snapshotOf(file, directory), "value", "VALUE")
+        PropertiesFile.cached(file, directory).getRaw("plain").value shouldBe "VALUE"
+    }
+
+    test("Compiles again when the file changes") {
+        val directory = tempDir()
+        val file = source(directory, text)
+        val snapshot = PropertiesSnapshot.snapshotOf(file, directory)
+        PropertiesFile.cached(file, directory)
+        val modified = file.lastModified()
+
+        // Same size and modification time, different content.
+        tamper(snapshot, "value", "VALUE")
+        file.writeText(text.replace("value", "other"), Charsets.UTF_8)
+        file.setLastModified(modified)
+        PropertiesFile.cached(file, directory).getRaw("plain").value shouldBe "other"
+
+        // Same content, different modification time.
+        tamper(snapshot, "other", "OTHER")
+        file.setLastModified(modified + 2000)
+        PropertiesFile.cached(file, directory).getRaw("plain").value shouldBe "other"
+
+        // Different size.
+        tamper(snapshot, "other", "OTHER")
+        file.writeText(text.replace("value", "longer"), Charsets.UTF_8)
+        file.setLastModified(modified + 2000)
+        PropertiesFile.cached(file, directory).getRaw("plain").value shouldBe "longer"
+    }
+
+    test("Recovers from broken snapshots") {
+        val directory = tempDir()
+        val file = source(directory, text)
+        val snapshot = PropertiesSnapshot.snapshotOf(file, directory)
+        val parsed = PropertiesFile(file).keys().toList()
+        PropertiesFile.cached(file, directory)
+        val valid = Files.readAllBytes(snapshot)
+
+        Files.write(snapshot, valid.copyOf(valid.size / 2))
+        PropertiesFile.cached(file, directory).keys().toList() shouldBe parsed
+        Files.readAllBytes(snapshot).toList() shouldBe valid.toList()
+
+        // A key count far past the end of the file, right after the header.
+        Files.write(snapshot, valid.copyOf(32) + byteArrayOf(0x7f, 0, 0, 0))
+        PropertiesFile.cached(file, directory).keys().toList() shouldBe parsed
+
+        Files.write(snapshot, ByteArray(valid.size) { 0x5a })
+        PropertiesFile.cached(file, directory).keys().toList() shouldBe parsed
+        Files.readAllBytes(snapshot).toList() shouldBe valid.toList()
+    }
+
+})
@@ -1,9 +1,14 @@
 package dev.frilly.hikarilib.properties
 
+import dev.frilly.hikarilib.tempFile
 import io.kotest.assertions.throwables.shouldThrow
 import io.kotest.core.spec.style.FunSpec
 import io.kotest.matchers.shouldBe
 import java.io.File
+import java.nio.charset.Charset
+import java.nio.file.Files
+import java.time.Duration
+import java.util.concurrent.atomic.AtomicReference
 
 class PropertiesTest : FunSpec({
 
@@ -68,4 +73,247 @@ class PropertiesTest : FunSpec({
         props.get("test").get().value shouldBe "example.com"
     }
 
+    val text = """
+        messages.error.noperm=No permission
+        messages.error.cooldown=Slow down
+        messages.errors.other=Other
+        messages.info=Info
+        settings.max=10
+    """.trimIndent()
+
+    test("Prefix queries") {
+        val props = PropertiesFile(tempFile(text))
+
+        props.keysWithPrefix("messages.error").toList() shouldBe
+                listOf("messages.error.cooldown", "messages.error.noperm", "messages.errors.other")
+        props.subtree("messages.error").keys.toList() shouldBe
+                listOf("messages.error.cooldown", "messages.error.noperm")
+        props.range("messages.info", "settings").keys.toList() shouldBe listOf("messages.info")
+
+        props.addKey("messages.error.full", "Full", listOf())
+        props.subtree("messages.error").size shouldBe 3
+        props.reload()
+        props.subtree("messages.error").size shouldBe 2
+    }
+
+    test("Typed accessors") {
+        val props = PropertiesFile(tempFile("int=42\nlong=9000000000\ndouble=2.5\nbool=true\n" +
+                "list=a, b,,c\nduration=1h30m\nticks=20t\nbad=nope\n"))
+
+        props.getInt("int") shouldBe 42
+        props.getLong("long") shouldBe 9000000000L
+        props.getDouble("double") shouldBe 2.5
+        props.getBoolean("bool") shouldBe true
+        props.getList("list") shouldBe listOf("a", "b", "c")
+        props.getDuration("duration") shouldBe Duration.ofMinutes(90)
+        props.getDuration("ticks") shouldBe Duration.ofSeconds(1)
+
+        props.getInt("bad", 7) shouldBe 7
+        props.getInt("missing", 3) shouldBe 3
+        shouldThrow<NumberFormatException> { props.getInt("bad") }
+        shouldThrow<NullPointerException> { props.getInt("missing") }
+
+        props.addKey("int", "43", listOf())
+        props.getInt("int") shouldBe 43
+    }
+
+    test("Change listeners") {
+        val file = tempFile("kept=1\nchanged=1\nremoved=1\n")
+        val props = PropertiesFile(file)
+        val changes = mutableListOf<KeyChange>()
+        props.addListener { changes.add(it) }
+
+        props.addKey("kept", "1", listOf())
+        changes.isEmpty() shouldBe true
+
+        file.writeText("kept=1\nchanged=2\nadded=1\n")
+        props.reload()
+        changes.map { it.type to it.key } shouldBe listOf(
+            KeyChange.Type.CHANGED to "changed",
+            KeyChange.Type.ADDED to "added",
+            KeyChange.Type.REMOVED to "removed"
+        )
+    }
+
+    test("Dirty tracking") {
+        val file = tempFile("a=1\n")
+        val props = PropertiesFile(file)
+        props.isDirty shouldBe false
+
+        // Nothing changed in memory, so the file on disk is left alone.
+        file.writeText("a=2\n")
+        props.save()
+        file.readText() shouldBe "a=2\n"
+
+        props.addKey("b", "3", listOf())
+        props.isDirty shouldBe true
+        props.save()
+        props.isDirty shouldBe false
+        file.readText() shouldBe "a=1\nb=3\n"
+    }
+
+    test("Bulk loading") {
+        val dir = Files.createTempDirectory("hikari")
+        dir.resolve("en.properties").toFile().writeText("hello=Hello\n")
+        dir.resolve("vi.properties").toFile().writeText("hello=Xin chào\n")
+        dir.resolve("broken.properties").toFile().writeBytes(byteArrayOf('a'.code.toByte(), '='.code.toByte(), 0xFF.toByte()))
+        dir.resolve("notes.txt").toFile().writeText("ignored")
+
+        val loaded = PropertiesFile.loadAll(dir, 2)
+        loaded.keys.map { it.fileName.toString() } shouldBe listOf("broken.properties", "en.properties", "vi.properties")
+        loaded.getValue(dir.resolve("broken.properties")).isFailure shouldBe true
+        loaded.getValue(dir.resolve("vi.properties")).value.getRaw("hello")?.value shouldBe "Xin chào"
+    }
+
+    test("Concurrent files") {
+        val props = PropertiesFile.concurrent(tempFile(text))
+        val reader = Thread {
+            repeat(100_000) {
+                props.getInt("settings.max") shouldBe 10
+                props.subtree("messages.error").size shouldBe 2
+            }
+        }
+        reader.start()
+        repeat(1_000) { props.addKey("generated.$it", "$it", listOf()) }
+        reader.join()
+
+        props.getRaw("generated.999").value shouldBe "999"
+        props.keysWithPrefix("generated.").size shouldBe 1_000
+        props.addKey("settings.max", "11", listOf())
+        props.getInt("settings.max") shouldBe 11
+    }
+
+    test("Pooled files") {
+        val pool = StringPool()
+        val en = PropertiesFile.pooled(tempFile("# Header\nhello=Hello\nbye=Bye\n"), pool)
+        val vi = PropertiesFile.pooled(tempFile("# Header\nhello=Xin chào\nbye=Bye\n"), pool)
+
+        (en.getRaw("hello").key === vi.getRaw("hello").key) shouldBe true
+        (en.getRaw("bye").value === vi.getRaw("bye").value) shouldBe true
+        (en.getRaw("hello").comments === vi.getRaw("hello").comments) shouldBe true
+        (en.getRaw("bye").comments === vi.getRaw("bye").comments) shouldBe true
+        (pool.savedBytes > 0) shouldBe true
+    }
+
+    // Patching keeps the untouched records as they are, so it needs the platform charset to be UTF-8.
+    test("Incremental saves").config(enabled = Charset.defaultCharset() == Charsets.UTF_8) {
+        val file = tempFile("# Header\n\na = 1\nb=22\nc : x\n")
+        val props = PropertiesFile(file)
+
+        // Only the changed record is rewritten, the rest of the file is left as it was.
+        props.addKey("b", "33", listOf())
+        props.save()
+        file.readText() shouldBe "# Header\n\na = 1\nb=33\nc : x\n"
+
+        // Different size, spliced.
+        props.addKey("b", "4444", listOf())
+        props.addKey("d", "new", listOf())
+        props.save()
+        file.readText() shouldBe "# Header\n\na = 1\nb=4444\nc : x\nd=new\n"
+
+        // Changed on disk, written in full.
+        file.writeText("e=external and much longer\n")
+        props.addKey("a", "2", listOf())
+        props.save()
+        file.readText() shouldBe "\n# Header\na=2\nb=4444\nc=x\nd=new\n"
+    }
+
+    test("Async loading and saving") {
+        val file = tempFile("a=1\n")
+        val props = PropertiesFile.loadAsync(file).get()
+        props.getRaw("a").value shouldBe "1"
+
+        props.addKey("a", "2", listOf())
+        props.saveAsync().get()
+        file.readText() shouldBe "a=2\n"
+
+        // Only concurrent files can be read while an I/O thread reloads them.
+        shouldThrow<IllegalStateException> { props.reloadAsync() }
+        val concurrent = PropertiesFile.concurrent(file)
+        file.writeText("a=3\n")
+        concurrent.reloadAsync().get()
+        concurrent.getRaw("a").value shouldBe "3"
+
+        // An unchanged mapped file is decoded before the save leaves this thread.
+        val mapped = PropertiesFile.mapped(file)
+        val saved = mapped.saveAsync()
+        mapped.getRaw("a").value shouldBe "3"
+        saved.get()
+    }
+
+    test("Reading while reloading") {
+        val file = tempFile(text)
+        val props = PropertiesFile.concurrent(file)
+        val failure = AtomicReference<Throwable>()
+        val reader = Thread {
+            try {
+                repeat(100_000) {
+                    props.getInt("settings.max") shouldBe 10
+                    props.subtree("messages.error").size shouldBe 2
+                }
+            } catch (throwable: Throwable) {
+                failure.set(throwable)
+            }
+        }
+        reader.start()
+        while (reader.isAlive)
+            props.reloadAsync().get()
+        reader.join()
+        failure.get() shouldBe null
+    }
+
+    test("Write-behind saves") {
+        val file = tempFile("a=1\n")
+        val props = PropertiesFile(file)
+
+        // A burst of changes is coalesced into a single write, once the delay has passed.
+        props.writeBehind(200)
+        repeat(50) { props.addKey("key$it", "$it", listOf()) }
+        file.readText() shouldBe "a=1\n"
+        val deadline = System.currentTimeMillis() + 5000
+        while (file.readText() == "a=1\n" && System.currentTimeMillis() < deadline)
+            Thread.sleep(10)
+        file.readText().lines().size shouldBe 52
+        props.isDirty shouldBe false
+
+        // Nothing is pending anymore, so the file is left alone.
+        file.setLastModified(1000)
+        Thread.sleep(400)
+        file.lastModified() shouldBe 1000
+
+        // Flushing writes right away.
+        props.writeBehind(60_000)
+        props.addKey("a", "2", listOf())
+        file.readText().startsWith("a=1\n") shouldBe true
+        props.flush()
+        props.isDirty shouldBe false
+        file.readText().startsWith("a=2\n") shouldBe true
+    }
+
+    test("Watched reloads") {
+        shouldThrow<IllegalStateException> { PropertiesFile(tempFile("a=1\n")).watch() }
+
+        val file = tempFile("a=1\n")
+        val props = PropertiesFile.concurrent(file)
+        val changes = mutableListOf<String>()
+        props.addListener { changes += it.key }
+
+        props.addKey("a", "2", listOf())
+        props.save()
+        props.reloadIfChanged()
+        changes shouldBe listOf("a")
+
+        file.writeText("a=3\n")
+        file.setLastModified(file.lastModified() + 2000)
+        props.addKey("b", "1", listOf())
+        props.reloadIfChanged()
+        props.getRaw("b").value shouldBe "1"
+
+        props.save()
+        file.writeText("a=4\n")
+        file.setLastModified(file.lastModified() + 2000)
+        props.reloadIfChanged()
+        props.getRaw("a").value shouldBe "4"
+    }
+
 })
@@ -0,0 +1,53 @@
+package dev.frilly.hikarilib.properties
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import java.io.File
+import java.io.StringReader
+import java.io.StringWriter
+import java.nio.file.FileSystems
+import java.nio.file.Files
+import java.nio.file.attribute.PosixFilePermissions
+
+class PropertiesWriterTest : FunSpec({
+
+    val nl = System.lineSeparator()
+
+    val keys = listOf(
+        PropertyKey("simple", "value", listOf()),
+        PropertyKey("we:ird=key name", "back\\slash", listOf("Comment", "! Kept")),
+        PropertyKey("multi", "first\nsecond\nthird", listOf())
+    )
+
+    test("Output format") {
+        val writer = StringWriter()
+        PropertiesWriter.write(writer, keys.iterator())
+        writer.toString() shouldBe "simple=value\n" +
+                "$nl# Comment$nl! Kept$nl" +
+                "we\\:ird\\=key\\ name=back\\\\slash\n" +
+                "multi=first \\\n  second \\\n  third\n"
+    }
+
+    test("Round trip") {
+        val writer = StringWriter()
+        PropertiesWriter.write(writer, keys.iterator())
+        val map = PropertiesReader.read(StringReader(writer.toString())).associateBy { it.key }
+        map["simple"]?.value shouldBe "value"
+        map["we:ird=key name"]?.value shouldBe "back\\slash"
+        map["we:ird=key name"]?.comments shouldBe listOf("# Comment", "! Kept")
+    }
+
+    test("Atomic writes keep the permissions").config(
+        enabled = "posix" in FileSystems.getDefault().supportedFileAttributeViews()
+    ) {
+        val file = File.createTempFile("hikari", ".properties")
+        file.deleteOnExit()
+        val permissions = PosixFilePermissions.fromString("rw-r-----")
+        Files.setPosixFilePermissions(file.toPath(), permissions)
+
+        PropertiesWriter.writeAtomically(file, keys)
+        Files.getPosixFilePermissions(file.toPath()) shouldBe permissions
+        file.parentFile.listFiles { _, name -> name.startsWith(file.name) && name.endsWith(".tmp") }!!.size shouldBe 0
+    }
+
+})
@@ -0,0 +1,75 @@
+package dev.frilly.hikarilib.reflection
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import java.util.function.BiFunction
+import java.util.function.ToIntFunction
+
+class Counter {
+    private var count = 0
+
+    fun add(amount: Int): Int {
+        count += amount
+        return count
+    }
+
+    fun sum(a: Int, b: Int, c: Int) = count + a + b + c
+
+    private fun secret(prefix: String) = prefix + count
+
+    companion object {
+        @JvmStatic
+        fun twice(value: Long) = value * 2
+    }
+}
+
+class InvokersTest : FunSpec({
+
+    val add = Counter::class.java.getMethod("add", Int::class.java)
+    val sum = Counter::class.java.getMethod("sum", Int::class.java, Int::class.java, Int::class.java)
+    val secret = Counter::class.java.getDeclaredMethod("secret", String::class.java)
+    val twice = Counter::class.java.getMethod("twice", Long::class.java)
+
+    test("Invokers") {
+        val counter = Counter()
+        Invokers.invoker(add).invoke(counter, 5) shouldBe 5
+        Invokers.invoker(sum).invoke(counter, 1, 2, 3) shouldBe 11
+        Invokers.invoker(secret).invoke(counter, "count: ") shouldBe "count: 5"
+        Invokers.invoker(twice).invoke(null, 4L) shouldBe 8L
+        Invokers.invoker(add) shouldBeSameInstanceAs Invokers.invoker(add)
+
+        shouldThrow<IllegalArgumentException> {
+            Invokers.invoker(add).invoke(counter)
+        }
+    }
+
+    test("Lambdas") {
+        val counter = Counter()
+        val adder = Invokers.lambda<BiFunction<Any, Any, Any>>(add, BiFunction::class.java)
+        adder.apply(counter, 3) shouldBe 3
+
+        val summer = Invokers.lambda<Summer>(sum, Summer::class.java)
+        summer.sum(counter, 1, 1, 1) shouldBe 6
+
+        val secretOf = Invokers.lambda<BiFunction<Any, Any, Any>>(secret, BiFunction::class.java)
+        secretOf.apply(counter, "count: ") shouldBe "count: 3"
+
+        shouldThrow<IllegalArgumentException> {
+            Invokers.lambda<ToIntFunction<Any>>(sum, ToIntFunction::class.java)
+        }
+    }
+
+    test("Fields") {
+        val counter = Counter()
+        val field = Counter::class.java.getDeclaredField("count")
+        Invokers.setter(field).invokeWithArguments(counter, 7)
+        Invokers.getter(field).invokeWithArguments(counter) shouldBe 7
+    }
+
+})
+
+fun interface Summer {
+    fun sum(target: Any, a: Int, b: Int, c: Int): Int
+}
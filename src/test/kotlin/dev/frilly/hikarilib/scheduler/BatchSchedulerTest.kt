@@ -0,0 +1,78 @@
+package dev.frilly.hikarilib.scheduler
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import java.util.concurrent.TimeUnit
+
+class BatchSchedulerTest : FunSpec({
+
+    test("Drains by priority") {
+        val scheduler = BatchScheduler.create(1, TimeUnit.NANOSECONDS) { 0L }
+        val order = mutableListOf<String>()
+        scheduler.submit({ order += "low" }, TaskPriority.LOW)
+        scheduler.submit { order += "normal" }
+        scheduler.submit({ order += "high" }, TaskPriority.HIGH)
+        scheduler.getQueueDepth() shouldBe 3
+        scheduler.getQueueDepth(TaskPriority.LOW) shouldBe 1
+
+        scheduler.tick()
+        order shouldBe listOf("high", "normal", "low")
+        scheduler.getQueueDepth() shouldBe 0
+        scheduler.getMetrics().executed shouldBe 3
+        scheduler.getMetrics().overruns shouldBe 0
+    }
+
+    test("Carries over past the budget") {
+        var now = 0L
+        val scheduler = BatchScheduler.create(10, TimeUnit.NANOSECONDS) { now }
+        var ran = 0
+        repeat(10) { scheduler.submit { ran++; now += 4 } }
+
+        scheduler.tick()
+        ran shouldBe 3
+        scheduler.getQueueDepth() shouldBe 7
+        scheduler.getMetrics().overruns shouldBe 1
+        scheduler.getMetrics().maxOverrunNanos shouldBe 2
+
+        scheduler.tick()
+        scheduler.tick()
+        scheduler.tick()
+        ran shouldBe 10
+        scheduler.getMetrics().ticks shouldBe 4
+        scheduler.getMetrics().overruns shouldBe 3
+    }
+
+    test("Lower priorities don't starve") {
+        var now = 0L
+        val scheduler = BatchScheduler.create(0, TimeUnit.NANOSECONDS) { now }
+        val order = mutableListOf<String>()
+        repeat(3) { scheduler.submit({ order += "high"; now++ }, TaskPriority.HIGH) }
+        scheduler.submit({ order += "low"; now++ }, TaskPriority.LOW)
+
+        scheduler.tick()
+        order shouldBe listOf("high", "low")
+    }
+
+    test("Failures don't stop the batch") {
+        val scheduler = BatchScheduler.create(1, TimeUnit.NANOSECONDS) { 0L }
+        var ran = false
+        scheduler.submit { throw IllegalStateException("broken") }
+        scheduler.submit { ran = true }
+
+        scheduler.tick()
+        ran shouldBe true
+        scheduler.getMetrics().failed shouldBe 1
+        scheduler.getMetrics().executed shouldBe 2
+    }
+
+    test("Closing returns the remaining tasks") {
+        val scheduler = BatchScheduler.create(1, TimeUnit.NANOSECONDS) { 0L }
+        val task = Runnable { }
+        scheduler.submit(task)
+        scheduler.close() shouldBe listOf(task)
+        scheduler.getQueueDepth() shouldBe 0
+        shouldThrow<IllegalStateException> { scheduler.submit(task) }
+    }
+
+})
@@ -0,0 +1,65 @@
+package dev.frilly.hikarilib.scheduler
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import java.util.concurrent.Executor
+
+class TimingWheelTest : FunSpec({
+
+    fun TimingWheel.advance(ticks: Int) = repeat(ticks) { tick() }
+
+    test("Runs at the deadline") {
+        val wheel = TimingWheel.create(Executor { it.run() })
+        val ran = mutableMapOf<Long, Long>()
+        for (delay in listOf(0L, 1L, 5L, 63L, 64L, 65L, 200L, 4095L, 4096L, 5000L, 300_000L))
+            wheel.schedule({ ran[delay] = wheel.currentTick }, delay)
+        wheel.size() shouldBe 11
+
+        wheel.advance(300_000)
+        ran.size shouldBe 11
+        ran.forEach { (delay, tick) -> tick shouldBe maxOf(1L, delay) }
+        wheel.size() shouldBe 0
+    }
+
+    test("Cancelled tasks don't run") {
+        val wheel = TimingWheel.create(Executor { it.run() })
+        var ran = 0
+        val first = wheel.schedule({ ran++ }, 10)
+        val second = wheel.schedule({ ran++ }, 100)
+        wheel.schedule({ ran++ }, 100)
+        first.cancel() shouldBe true
+        first.cancel() shouldBe false
+        wheel.advance(50)
+        second.cancel() shouldBe true
+        wheel.size() shouldBe 1
+
+        wheel.advance(100)
+        ran shouldBe 1
+        first.isCancelled shouldBe true
+        wheel.size() shouldBe 0
+    }
+
+    test("Async tasks go to the executor") {
+        val handed = mutableListOf<Runnable>()
+        val wheel = TimingWheel.create(Executor { handed += it })
+        val task = Runnable { }
+        val timeout = wheel.scheduleAsync(task, 3)
+        wheel.advance(2)
+        handed shouldBe emptyList()
+        wheel.advance(1)
+        handed shouldBe listOf(task)
+        timeout.isExpired shouldBe true
+    }
+
+    test("Closing returns the waiting tasks") {
+        val wheel = TimingWheel.create(Executor { it.run() })
+        val task = Runnable { }
+        wheel.schedule(task, 10)
+        wheel.tick()
+        wheel.schedule(task, 1000)
+        wheel.close() shouldBe listOf(task, task)
+        shouldThrow<IllegalStateException> { wheel.schedule(task, 1) }
+    }
+
+})